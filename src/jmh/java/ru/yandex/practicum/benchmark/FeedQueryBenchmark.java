@@ -0,0 +1,50 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.dto.PostsPageResponse;
+import ru.yandex.practicum.loadtest.DataSeeder;
+import ru.yandex.practicum.loadtest.PerfEnvironment;
+import ru.yandex.practicum.repository.PostRepository;
+
+import java.util.concurrent.TimeUnit;
+
+// Лента целиком через PostRepository против Postgres в Testcontainers, заполненного bench.posts постами.
+// Существующую базу можно задать через -Dbench.jdbc-url (см. PerfEnvironment)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FeedQueryBenchmark {
+
+    @Param({"", "#tag1", "spring cache"})
+    public String search;
+
+    private PerfEnvironment environment;
+    private PostRepository postRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = PerfEnvironment.start("bench.", false);
+        new DataSeeder(Integer.getInteger("bench.posts", 50_000), 0, 50, 0).seed(environment);
+        postRepository = environment.getBean(PostRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public PostsPageResponse firstPage() {
+        return postRepository.findPosts(search, 1, 10);
+    }
+
+    @Benchmark
+    public PostsPageResponse deepPage() {
+        return postRepository.findPosts(search, 50, 10);
+    }
+
+    @Benchmark
+    public PostsPageResponse firstPageWithoutTotal() {
+        return postRepository.findPostsWithoutTotal(search, 1, 10);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.dto.PostResponse;
+import ru.yandex.practicum.dto.PostsPageResponse;
+import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.service.LikeBuffer;
+import ru.yandex.practicum.service.PostService;
+import ru.yandex.practicum.service.RecentWrites;
+import ru.yandex.practicum.service.cache.LruCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Работа PostService.getPosts поверх репозитория без базы: построение DTO страницы,
+// обрезка текста для ленты и обращение к кешу ленты (выключенному или всегда попадающему)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class PostServiceBenchmark {
+
+    @Param({"10", "50"})
+    public int pageSize;
+
+    @Param({"false", "true"})
+    public boolean feedCacheEnabled;
+
+    private PostService postService;
+
+    @Setup
+    public void setUp() {
+        PostRepository repository = new StubPostRepository(pageSize);
+        // Кеш с нулевым размером ничего не хранит — каждый вызов строит страницу заново
+        LruCache<String, PostsPageResponse> feedCache =
+                new LruCache<>("feed", feedCacheEnabled ? 500 : 0, Duration.ofMinutes(5));
+        postService = new PostService(repository,
+                new LruCache<>("posts", 0, Duration.ofMinutes(5)),
+                feedCache,
+                new LikeBuffer(repository, false, Duration.ofMillis(500), 10_000, 100_000),
+                new RecentWrites("", Duration.ofSeconds(2), 0));
+    }
+
+    @Benchmark
+    public PostsPageResponse getPosts() {
+        return postService.getPosts("#java spring", 1, pageSize);
+    }
+
+    // Репозиторий, каждый раз отдающий новую страницу постов с длинным текстом (как из базы)
+    private static class StubPostRepository extends PostRepository {
+
+        private final int pageSize;
+        private final String text = "Lorem ipsum dolor sit amet ".repeat(40);
+
+        StubPostRepository(int pageSize) {
+            super(new JdbcTemplate(), new LruCache<>("postCount", 0, Duration.ofSeconds(30)));
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public PostsPageResponse findPosts(String search, int pageNumber, int pageSize) {
+            List<PostResponse> posts = new ArrayList<>(this.pageSize);
+            for (int i = 0; i < this.pageSize; i++) {
+                posts.add(new PostResponse((long) i, "Post " + i, text, List.of("#java", "#spring"), i, i % 7));
+            }
+            return new PostsPageResponse(posts, false, true, 100);
+        }
+    }
+}
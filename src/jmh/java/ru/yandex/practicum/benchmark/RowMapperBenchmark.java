@@ -0,0 +1,66 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.model.PagenablePost;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.repository.mapper.PagenablePostRowMapper;
+import ru.yandex.practicum.repository.mapper.PostRowMapper;
+
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Маппинг строки результата в пост. ResultSet — заглушка в памяти:
+// измеряется работа маппера, а не драйвера (накладные расходы заглушки одинаковы для обоих мапперов)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RowMapperBenchmark {
+
+    @Param({"128", "4096"})
+    public int textLength;
+
+    private ResultSet resultSet;
+    private final PostRowMapper postRowMapper = new PostRowMapper();
+    private final PagenablePostRowMapper pagenablePostRowMapper = new PagenablePostRowMapper();
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> row = Map.of(
+                "id", 42L,
+                "title", "Benchmark post title",
+                "text", "x".repeat(textLength),
+                "tags", stringArray(new String[]{"#java", "#spring", "#postgres"}),
+                "likes_count", 17,
+                "comments_count", 5
+        );
+        resultSet = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> row.get((String) args[0]));
+    }
+
+    @Benchmark
+    public Post fillPost() throws SQLException {
+        return PostRowMapper.fillPost(resultSet, new Post());
+    }
+
+    @Benchmark
+    public Post postRowMapper() throws SQLException {
+        return postRowMapper.mapRow(resultSet, 0);
+    }
+
+    @Benchmark
+    public PagenablePost pagenablePostRowMapper() throws SQLException {
+        return pagenablePostRowMapper.mapRow(resultSet, 0);
+    }
+
+    // java.sql.Array, отдающий готовый массив строк (как PgArray для TEXT[])
+    private static Array stringArray(String[] values) {
+        return (Array) Proxy.newProxyInstance(Array.class.getClassLoader(),
+                new Class<?>[]{Array.class},
+                (proxy, method, args) -> values.clone());
+    }
+}
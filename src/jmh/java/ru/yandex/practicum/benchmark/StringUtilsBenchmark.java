@@ -0,0 +1,27 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.service.utils.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Разбор строки поиска ленты: выполняется на каждый запрос GET /api/posts
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StringUtilsBenchmark {
+
+    @Param({"", "spring", "#java #spring", "spring boot   jdbc #java #spring #postgres"})
+    public String search;
+
+    @Benchmark
+    public Map<String, String> splitByHash() {
+        return StringUtils.splitByHash(search);
+    }
+
+    @Benchmark
+    public String normalizeSearch() {
+        return StringUtils.normalizeSearch(search);
+    }
+}
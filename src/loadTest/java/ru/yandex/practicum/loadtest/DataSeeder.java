@@ -0,0 +1,148 @@
+package ru.yandex.practicum.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.ImageSize;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.service.storage.ImageStorage;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Заполняет пустую базу постами, тегами, комментариями и изображениями.
+ * Посты получают ID от 1 до posts (последовательность сброшена в PerfEnvironment),
+ * теги — вида #tag0..#tag{tags-1} с неравномерной частотой, как у живого блога.
+ */
+public class DataSeeder {
+
+    private static final String[] WORDS = {
+            "spring", "java", "postgres", "index", "cache", "latency", "thread", "query", "feed", "image",
+            "batch", "cursor", "benchmark", "memory", "pool", "kernel", "network", "design", "review", "release"
+    };
+    private static final int CHUNK_SIZE = 10_000;
+
+    private final int posts;
+    private final int commentsPerPost;
+    private final int tags;
+    private final int images;
+    private final Random random = new Random(42);
+
+    public DataSeeder(int posts, int commentsPerPost, int tags, int images) {
+        this.posts = posts;
+        this.commentsPerPost = commentsPerPost;
+        this.tags = tags;
+        this.images = Math.min(images, posts);
+    }
+
+    public void seed(PerfEnvironment environment) {
+        PostRepository repository = environment.getBean(PostRepository.class);
+
+        List<Post> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < posts; i++) {
+            chunk.add(new Post(null, sentence(3 + random.nextInt(6)), text(), randomTags(), random.nextInt(100)));
+            if (chunk.size() == CHUNK_SIZE) {
+                repository.copyPosts(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            repository.copyPosts(chunk);
+        }
+
+        List<Comment> comments = new ArrayList<>(CHUNK_SIZE);
+        for (long postId = 1; postId <= posts; postId++) {
+            // Число комментариев от 0 до 2 * commentsPerPost, в среднем commentsPerPost
+            int count = commentsPerPost == 0 ? 0 : random.nextInt(2 * commentsPerPost + 1);
+            for (int i = 0; i < count; i++) {
+                comments.add(new Comment(null, postId, sentence(5 + random.nextInt(20))));
+            }
+            if (comments.size() >= CHUNK_SIZE) {
+                repository.insertComments(comments);
+                comments.clear();
+            }
+        }
+        if (!comments.isEmpty()) {
+            repository.insertComments(comments);
+        }
+
+        seedImages(environment.getBean(ImageStorage.class));
+        // Свежая статистика для планировщика, как в давно работающей базе
+        environment.getBean(JdbcTemplate.class).execute("ANALYZE posts, comments");
+    }
+
+    public int getPosts() {
+        return posts;
+    }
+
+    public int getTags() {
+        return tags;
+    }
+
+    public int getImages() {
+        return images;
+    }
+
+    // Изображения получают первые images постов
+    private void seedImages(ImageStorage storage) {
+        try {
+            Path file = Files.createTempFile("seed-image", ".jpg");
+            try {
+                for (long postId = 1; postId <= images; postId++) {
+                    BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+                    Graphics2D graphics = image.createGraphics();
+                    graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+                    graphics.fillRect(0, 0, 640, 480);
+                    graphics.dispose();
+                    ImageIO.write(image, "jpeg", file.toFile());
+                    storage.store(ImageSize.ORIGINAL.fileName(postId), file);
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String text() {
+        // Большинство постов короткие, часть — длинные статьи
+        int words = random.nextInt(10) == 0 ? 500 + random.nextInt(1500) : 30 + random.nextInt(120);
+        return sentence(words);
+    }
+
+    private String sentence(int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private List<String> randomTags() {
+        int count = 1 + random.nextInt(3);
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Квадрат равномерной величины: младшие теги встречаются заметно чаще
+            double skewed = random.nextDouble() * random.nextDouble();
+            String tag = "#tag" + (int) (skewed * tags);
+            if (!result.contains(tag)) {
+                result.add(tag);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Задержки запросов одного сценария в микросекундах. Не потокобезопасен:
+ * каждый поток нагрузки пишет в свой экземпляр, в конце они объединяются через merge.
+ */
+public class LatencyStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    public void record(long micros) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = micros;
+    }
+
+    public void recordError() {
+        errors++;
+    }
+
+    public void merge(LatencyStats other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.latencies[i]);
+        }
+        errors += other.errors;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    // Перцентиль (0..100) по методу ближайшего ранга; 0, если замеров нет
+    public long percentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percent / 100 * count);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
@@ -0,0 +1,244 @@
+package ru.yandex.practicum.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Нагрузочный тест REST API: поднимает Postgres и приложение (см. {@link PerfEnvironment}),
+ * заполняет базу ({@link DataSeeder}) и в течение заданного времени гоняет смешанную нагрузку
+ * из loadtest.users потоков, каждый из которых отправляет запросы последовательно (закрытая модель).
+ * В конце печатает пропускную способность и задержки p50/p99 по сценариям.
+ * <p>
+ * Параметры (системные свойства, gradle loadTest -D...):
+ * <ul>
+ *     <li>loadtest.posts, loadtest.comments-per-post, loadtest.tags, loadtest.images — объём данных</li>
+ *     <li>loadtest.users — число параллельных клиентов, loadtest.warmup и loadtest.duration — время прогрева и замера</li>
+ *     <li>loadtest.mix — доли сценариев, например feed:40,tag-search:20,likes:20,comments:10,images:10</li>
+ *     <li>loadtest.max-error-rate — доля ошибок, при превышении которой тест завершается с кодом 1</li>
+ *     <li>loadtest.jdbc-url, loadtest.app.* — см. {@link PerfEnvironment}</li>
+ * </ul>
+ */
+public class LoadTestRunner {
+
+    enum Scenario {
+        // Листание ленты без поиска
+        FEED("feed"),
+        // Поиск по тегу
+        TAG_SEARCH("tag-search"),
+        // Шквал лайков: большая часть приходится на несколько популярных постов
+        LIKES("likes"),
+        // Поток новых комментариев
+        COMMENTS("comments"),
+        // Получение изображений постов
+        IMAGES("images");
+
+        private final String key;
+
+        Scenario(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final int HOT_POSTS = 10;
+
+    // HTTP/1.1 с keep-alive, как у браузера за балансировщиком; без попыток апгрейда до h2c на каждом запросе
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final DataSeeder data;
+    private final Map<Scenario, Integer> mix;
+
+    LoadTestRunner(String baseUrl, DataSeeder data, Map<Scenario, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.data = data;
+        this.mix = mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        DataSeeder data = new DataSeeder(
+                Integer.getInteger("loadtest.posts", 50_000),
+                Integer.getInteger("loadtest.comments-per-post", 5),
+                Integer.getInteger("loadtest.tags", 50),
+                Integer.getInteger("loadtest.images", 200));
+        int users = Integer.getInteger("loadtest.users", 32);
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "30s"));
+        Map<Scenario, Integer> mix = parseMix(
+                System.getProperty("loadtest.mix", "feed:40,tag-search:20,likes:20,comments:10,images:10"));
+        double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+
+        Map<Scenario, LatencyStats> results;
+        try (PerfEnvironment environment = PerfEnvironment.start("loadtest.", true)) {
+            long started = System.nanoTime();
+            data.seed(environment);
+            System.out.printf("Seeded %d posts, %d tags, %d images in %d ms%n", data.getPosts(), data.getTags(),
+                    data.getImages(), (System.nanoTime() - started) / 1_000_000);
+
+            System.out.printf("Virtual threads: %s%n",
+                    environment.getContext().getEnvironment().getProperty("spring.threads.virtual.enabled", "false"));
+            LoadTestRunner runner = new LoadTestRunner("http://localhost:" + environment.getPort(), data, mix);
+            System.out.printf("Warming up for %s with %d users%n", warmup, users);
+            runner.run(users, warmup);
+            System.out.printf("Measuring for %s with %d users%n", duration, users);
+            results = runner.run(users, duration);
+        }
+
+        double errorRate = report(results, duration);
+        if (errorRate > maxErrorRate) {
+            System.out.printf("Error rate %.4f exceeds loadtest.max-error-rate %.4f%n", errorRate, maxErrorRate);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    // Прогон нагрузки: users потоков до истечения duration, результаты всех потоков объединяются
+    Map<Scenario, LatencyStats> run(int users, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Map<Scenario, LatencyStats>> perThread = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            Map<Scenario, LatencyStats> stats = new EnumMap<>(Scenario.class);
+            for (Scenario scenario : Scenario.values()) {
+                stats.put(scenario, new LatencyStats());
+            }
+            perThread.add(stats);
+            threads.add(Thread.ofPlatform().name("load-" + i).start(() -> {
+                while (System.nanoTime() < deadline) {
+                    execute(nextScenario(), stats);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<Scenario, LatencyStats> merged = new EnumMap<>(Scenario.class);
+        for (Scenario scenario : Scenario.values()) {
+            LatencyStats total = new LatencyStats();
+            perThread.forEach(stats -> total.merge(stats.get(scenario)));
+            merged.put(scenario, total);
+        }
+        return merged;
+    }
+
+    private void execute(Scenario scenario, Map<Scenario, LatencyStats> stats) {
+        HttpRequest request = request(scenario, ThreadLocalRandom.current());
+        long started = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long micros = (System.nanoTime() - started) / 1000;
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                stats.get(scenario).record(micros);
+            } else {
+                stats.get(scenario).recordError();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            stats.get(scenario).recordError();
+        }
+    }
+
+    private HttpRequest request(Scenario scenario, ThreadLocalRandom random) {
+        return switch (scenario) {
+            case FEED -> get("/api/posts?search=&pageNumber=" + (1 + random.nextInt(5)) + "&pageSize=10");
+            case TAG_SEARCH -> {
+                // Как и при заполнении, младшие теги запрашиваются чаще
+                int tag = (int) (random.nextDouble() * random.nextDouble() * data.getTags());
+                yield get("/api/posts?search=%23tag" + tag + "&pageNumber=1&pageSize=10");
+            }
+            case LIKES -> {
+                long postId = random.nextInt(10) < 8
+                        ? 1 + random.nextInt(Math.min(HOT_POSTS, data.getPosts()))
+                        : 1 + random.nextInt(data.getPosts());
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/api/posts/" + postId + "/likes"))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build();
+            }
+            case COMMENTS -> HttpRequest.newBuilder(
+                            URI.create(baseUrl + "/api/posts/" + (1 + random.nextInt(data.getPosts())) + "/comments"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"load test comment\"}"))
+                    .build();
+            case IMAGES -> get("/api/posts/" + (1 + random.nextInt(Math.max(data.getImages(), 1))) + "/image");
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private Scenario nextScenario() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Scenario, Integer> entry : mix.entrySet()) {
+            point -= entry.getValue();
+            if (point < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Пустая смесь сценариев");
+    }
+
+    // Доли сценариев в виде "feed:40,likes:20"; сценарии без доли не выполняются
+    static Map<Scenario, Integer> parseMix(String value) {
+        Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+        for (String part : value.split(",")) {
+            String[] keyAndWeight = part.trim().split(":");
+            Scenario scenario = null;
+            for (Scenario candidate : Scenario.values()) {
+                if (candidate.key.equals(keyAndWeight[0])) {
+                    scenario = candidate;
+                }
+            }
+            if (scenario == null || keyAndWeight.length != 2) {
+                throw new IllegalArgumentException("Неизвестный сценарий в loadtest.mix: " + part);
+            }
+            int weight = Integer.parseInt(keyAndWeight[1]);
+            if (weight > 0) {
+                mix.put(scenario, weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("В loadtest.mix нет ни одного сценария");
+        }
+        return mix;
+    }
+
+    // Печатает таблицу результатов и возвращает общую долю ошибок
+    private static double report(Map<Scenario, LatencyStats> results, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.printf("%-12s %10s %8s %10s %10s %10s %10s%n",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        LatencyStats total = new LatencyStats();
+        for (Map.Entry<Scenario, LatencyStats> entry : results.entrySet()) {
+            LatencyStats stats = entry.getValue();
+            if (stats.getCount() + stats.getErrors() == 0) {
+                continue;
+            }
+            printRow(entry.getKey().key, stats, seconds);
+            total.merge(stats);
+        }
+        printRow("total", total, seconds);
+        long requests = total.getCount() + total.getErrors();
+        return requests == 0 ? 0 : (double) total.getErrors() / requests;
+    }
+
+    private static void printRow(String name, LatencyStats stats, double seconds) {
+        System.out.printf("%-12s %10d %8d %10.1f %10.2f %10.2f %10.2f%n",
+                name, stats.getCount(), stats.getErrors(), stats.getCount() / seconds,
+                stats.percentile(50) / 1000.0, stats.percentile(99) / 1000.0, stats.percentile(100) / 1000.0);
+    }
+}
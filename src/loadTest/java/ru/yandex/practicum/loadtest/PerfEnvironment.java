@@ -0,0 +1,120 @@
+package ru.yandex.practicum.loadtest;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.yandex.practicum.BlogBackAppApplication;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Окружение для нагрузочного теста и бенчмарков JMH: Postgres и запущенное приложение.
+ * <p>
+ * По умолчанию Postgres поднимается в Testcontainers (образ {@code <prefix>image}, по умолчанию postgres:18;
+ * если образ уже скачан, сеть не нужна). Если задан {@code <prefix>jdbc-url} (и {@code <prefix>username},
+ * {@code <prefix>password}), используется существующая база — прежние посты и комментарии в ней удаляются.
+ */
+public class PerfEnvironment implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> postgres;
+    private final ConfigurableApplicationContext context;
+    private final Path dataDir;
+
+    private PerfEnvironment(PostgreSQLContainer<?> postgres, ConfigurableApplicationContext context, Path dataDir) {
+        this.postgres = postgres;
+        this.context = context;
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * @param prefix префикс системных свойств (например, "loadtest.")
+     * @param web    запускать ли HTTP-сервер (на случайном порту)
+     */
+    public static PerfEnvironment start(String prefix, boolean web) {
+        PostgreSQLContainer<?> postgres = null;
+        String jdbcUrl = System.getProperty(prefix + "jdbc-url");
+        String username = System.getProperty(prefix + "username", "postuser");
+        String password = System.getProperty(prefix + "password", "postpass");
+        if (jdbcUrl == null) {
+            postgres = new PostgreSQLContainer<>(System.getProperty(prefix + "image", "postgres:18"));
+            postgres.start();
+            jdbcUrl = postgres.getJdbcUrl();
+            username = postgres.getUsername();
+            password = postgres.getPassword();
+        }
+
+        Path dataDir;
+        try {
+            dataDir = Files.createTempDirectory("blog-perf");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.username", username);
+        properties.put("spring.datasource.password", password);
+        properties.put("spring.sql.init.mode", "always");
+        properties.put("server.port", 0);
+        properties.put("blog.images.storage.local.root", dataDir.resolve("uploads").toString());
+        properties.put("blog.images.staging-dir", dataDir.resolve("staging").toString());
+        // Свойства самого приложения можно переопределить так же: -D<prefix>app.blog.cache.feed.ttl=0s
+        String appPrefix = prefix + "app.";
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(appPrefix))
+                .forEach(name -> properties.put(name.substring(appPrefix.length()), System.getProperty(name)));
+
+        // Передаём как аргументы командной строки: они важнее application.yaml (в отличие от properties())
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        try {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(BlogBackAppApplication.class)
+                    .web(web ? WebApplicationType.SERVLET : WebApplicationType.NONE)
+                    .run(args);
+            // Схема создаётся через CREATE ... IF NOT EXISTS: в существующей базе удаляем прежние данные
+            context.getBean(JdbcTemplate.class)
+                    .execute("TRUNCATE comments, posts RESTART IDENTITY");
+            return new PerfEnvironment(postgres, context, dataDir);
+        } catch (RuntimeException e) {
+            if (postgres != null) {
+                postgres.stop();
+            }
+            throw e;
+        }
+    }
+
+    public ConfigurableApplicationContext getContext() {
+        return context;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // Порт HTTP-сервера (только для web = true)
+    public int getPort() {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (postgres != null) {
+            postgres.stop();
+        }
+        try (var paths = Files.walk(dataDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException ignored) {
+            // Временный каталог удалит система
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.dto.PostResponse;
+import ru.yandex.practicum.dto.PostsPageResponse;
+import ru.yandex.practicum.service.cache.CacheMetrics;
+import ru.yandex.practicum.service.cache.LruCache;
+import ru.yandex.practicum.service.storage.CachedImageResource;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class CacheConfig {
+
+    // Кеш количества постов по нормализованной строке поиска
+    @Bean
+    public LruCache<String, Integer> postCountCache(
+            @Value("${blog.feed.count-cache.max-size:1000}") int maxSize,
+            @Value("${blog.feed.count-cache.ttl:30s}") Duration ttl) {
+        return new LruCache<>("post-counts", maxSize, ttl);
+    }
+
+    // Кеш отдельных постов (GET /api/posts/{id})
+    @Bean
+    public LruCache<Long, PostResponse> postCache(
+            @Value("${blog.cache.posts.max-size:10000}") int maxSize,
+            @Value("${blog.cache.posts.ttl:5m}") Duration ttl) {
+        return new LruCache<>("posts", maxSize, ttl);
+    }
+
+    // Кеш страниц ленты (GET /api/posts): TTL короткий, так как лайки и комментарии его не сбрасывают
+    @Bean
+    public LruCache<String, PostsPageResponse> feedCache(
+            @Value("${blog.cache.feed.max-size:500}") int maxSize,
+            @Value("${blog.cache.feed.ttl:5s}") Duration ttl) {
+        return new LruCache<>("feed", maxSize, ttl);
+    }
+
+    // Кеш содержимого популярных изображений, ограничен суммарным размером в байтах
+    @Bean
+    public LruCache<String, CachedImageResource> imageCache(
+            @Value("${blog.cache.images.max-bytes:128MB}") DataSize maxBytes,
+            @Value("${blog.cache.images.ttl:10m}") Duration ttl) {
+        return new LruCache<>("images", maxBytes.toBytes(), ttl, image -> image.getByteArray().length);
+    }
+
+    @Bean
+    public CacheMetrics cacheMetrics(List<LruCache<?, ?>> caches) {
+        return new CacheMetrics(caches);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.service.storage.ImageMetrics;
+import ru.yandex.practicum.service.storage.ImageStorage;
+import ru.yandex.practicum.service.storage.LocalImageStorage;
+import ru.yandex.practicum.service.storage.S3ImageStorage;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+@Configuration
+public class ImageStorageConfig {
+
+    // Метрика объёма отданных изображений (blog.images.served)
+    @Bean
+    public ImageMetrics imageMetrics() {
+        return new ImageMetrics();
+    }
+
+    // Изображения на локальном диске (по умолчанию)
+    @Bean
+    @ConditionalOnProperty(name = "blog.images.storage.type", havingValue = "local", matchIfMissing = true)
+    public ImageStorage localImageStorage(@Value("${blog.images.storage.local.root:uploads/}") String root) {
+        return new LocalImageStorage(Paths.get(root));
+    }
+
+    // Клиент S3-совместимого хранилища; endpoint задаётся для MinIO и других не-AWS реализаций
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "blog.images.storage.type", havingValue = "s3")
+    public S3Client imageS3Client(
+            @Value("${blog.images.storage.s3.endpoint:}") String endpoint,
+            @Value("${blog.images.storage.s3.region:us-east-1}") String region,
+            @Value("${blog.images.storage.s3.access-key}") String accessKey,
+            @Value("${blog.images.storage.s3.secret-key}") String secretKey,
+            @Value("${blog.images.storage.s3.path-style:true}") boolean pathStyle) {
+        var builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .forcePathStyle(pathStyle);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    // Изображения в S3-совместимом хранилище
+    @Bean
+    @ConditionalOnProperty(name = "blog.images.storage.type", havingValue = "s3")
+    public ImageStorage s3ImageStorage(S3Client imageS3Client,
+                                       @Value("${blog.images.storage.s3.bucket}") String bucket) {
+        return new S3ImageStorage(imageS3Client, bucket);
+    }
+}
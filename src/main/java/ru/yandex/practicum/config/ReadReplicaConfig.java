@@ -0,0 +1,116 @@
+package ru.yandex.practicum.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import ru.yandex.practicum.repository.sql.ReadWriteDataSource;
+import ru.yandex.practicum.repository.sql.ReplicaRoutingDataSource;
+import ru.yandex.practicum.repository.sql.SqlTimingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class ReadReplicaConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    // Заменяем пул основной базы на ReadWriteDataSource с репликами из blog.datasource.replicas.urls.
+    // Постпроцессор упорядочен и срабатывает раньше обёртки SqlTimingConfig: она оборачивает уже результат,
+    // поэтому операторы на репликах тоже попадают в журнал медленных запросов
+    @Bean
+    public static BeanPostProcessor readReplicaDataSourcePostProcessor(Environment environment,
+                                                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        List<String> urls = binder.bind("blog.datasource.replicas.urls", Bindable.listOf(String.class))
+                .orElse(List.of()).stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        Duration healthCheckInterval = binder.bind("blog.datasource.replicas.health-check-interval", Duration.class)
+                .orElse(Duration.ofSeconds(5));
+        int failureThreshold = binder.bind("blog.datasource.replicas.failure-threshold", Integer.class)
+                .orElse(3);
+        Duration maxLag = binder.bind("blog.datasource.replicas.max-lag", Duration.class)
+                .orElse(Duration.ofSeconds(10));
+
+        return new ReadReplicaPostProcessor(urls, healthCheckInterval, failureThreshold, maxLag, meterRegistry);
+    }
+
+    private static class ReadReplicaPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final List<String> urls;
+        private final Duration healthCheckInterval;
+        private final int failureThreshold;
+        private final Duration maxLag;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        ReadReplicaPostProcessor(List<String> urls, Duration healthCheckInterval, int failureThreshold,
+                                 Duration maxLag, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.urls = urls;
+            this.healthCheckInterval = healthCheckInterval;
+            this.failureThreshold = failureThreshold;
+            this.maxLag = maxLag;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource primary)
+                    || bean instanceof ReadWriteDataSource || bean instanceof SqlTimingDataSource) {
+                return bean;
+            }
+            if (urls.isEmpty()) {
+                return new ReadWriteDataSource(primary, null);
+            }
+            if (!(primary instanceof HikariDataSource hikari)) {
+                log.warn("Реплики не подключены: настройки пула копируются только с HikariDataSource, а не {}",
+                        primary.getClass().getName());
+                return new ReadWriteDataSource(primary, null);
+            }
+
+            List<DataSource> replicas = new ArrayList<>(urls.size());
+            for (int i = 0; i < urls.size(); i++) {
+                replicas.add(replicaPool(hikari, urls.get(i), i + 1));
+            }
+            log.info("Чтение в транзакциях только для чтения распределяется по репликам: {}", urls.size());
+            return new ReadWriteDataSource(primary,
+                    new ReplicaRoutingDataSource(primary, replicas, healthCheckInterval, failureThreshold, maxLag));
+        }
+
+        // Пул реплики с теми же настройками, что у основной базы (пользователь, размер, таймауты, драйвер)
+        private HikariDataSource replicaPool(HikariDataSource primary, String url, int index) {
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setJdbcUrl(url);
+            config.setPoolName((primary.getPoolName() != null ? primary.getPoolName() : "blog") + "-replica-" + index);
+            config.setReadOnly(true);
+            // Недоступная при старте реплика не мешает запуску: её исключит проверка доступности
+            config.setInitializationFailTimeout(-1);
+            // Метрики hikaricp.* с тегом pool, как у основного пула
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null && config.getMetricsTrackerFactory() == null && config.getMetricRegistry() == null) {
+                config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+            return new HikariDataSource(config);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
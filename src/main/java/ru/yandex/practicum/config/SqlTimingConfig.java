@@ -0,0 +1,43 @@
+package ru.yandex.practicum.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.yandex.practicum.repository.sql.SlowQueryLog;
+import ru.yandex.practicum.repository.sql.SqlTimingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class SqlTimingConfig {
+
+    // Оборачиваем DataSource приложения, чтобы замерять каждый оператор (blog.sql.slow-query.*).
+    // Метод статический: постпроцессор создаётся раньше остальных бинов
+    @Bean
+    public static BeanPostProcessor sqlTimingDataSourcePostProcessor(Environment environment) {
+        Binder binder = Binder.get(environment);
+        boolean enabled = binder.bind("blog.sql.slow-query.enabled", Boolean.class).orElse(true);
+        Duration threshold = binder.bind("blog.sql.slow-query.threshold", Duration.class)
+                .orElse(Duration.ofMillis(200));
+        boolean explainEnabled = binder.bind("blog.sql.slow-query.explain.enabled", Boolean.class).orElse(false);
+        int explainTop = binder.bind("blog.sql.slow-query.explain.top", Integer.class).orElse(3);
+        Duration explainInterval = binder.bind("blog.sql.slow-query.explain.interval", Duration.class)
+                .orElse(Duration.ofMinutes(1));
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof SqlTimingDataSource) {
+                    return bean;
+                }
+                // EXPLAIN выполняется через исходный DataSource, чтобы не попадать в журнал самому
+                SlowQueryLog slowQueryLog = new SlowQueryLog(threshold,
+                        explainEnabled ? dataSource : null, explainTop, explainInterval);
+                return new SqlTimingDataSource(dataSource, slowQueryLog);
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import ru.yandex.practicum.controller.ConcurrencyLimitFilter;
+
+import java.time.Duration;
+
+// Режим виртуальных потоков (spring.threads.virtual.enabled=true): запросы Tomcat выполняются
+// в виртуальных потоках, а параллелизм ограничивается фильтром вместо размера пула потоков.
+// Лимит по умолчанию равен числу потоков Tomcat в обычном режиме (server.tomcat.threads.max);
+// запрос, не дождавшийся соединения с базой, получает 503 от ConnectionPoolExceptionHandler
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${blog.web.max-concurrent-requests:${server.tomcat.threads.max:200}}") int maxConcurrentRequests,
+            @Value("${blog.web.acquire-timeout:1s}") Duration acquireTimeout) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(maxConcurrentRequests, acquireTimeout));
+        // Раньше остальных фильтров: отклонённый запрос не должен ничего стоить
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
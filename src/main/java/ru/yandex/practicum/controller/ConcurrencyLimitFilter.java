@@ -0,0 +1,69 @@
+package ru.yandex.practicum.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение числа одновременно обрабатываемых запросов.
+ * С виртуальными потоками Tomcat больше не ограничивает параллелизм размером пула,
+ * и без этого фильтра тысячи запросов одновременно встали бы в очередь за соединениями к базе.
+ * Запрос, не получивший разрешение за acquireTimeout, получает 503 с Retry-After.
+ * Запросы к /actuator не ограничиваются, чтобы проверки здоровья и метрики работали под нагрузкой.
+ * Запросы к изображениям постов тоже не ограничиваются: они не берут соединение с базой, а отдача
+ * файла медленному клиенту заняла бы разрешение надолго. Загрузки ограничены своим лимитом
+ * (blog.images.max-concurrent-uploads).
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Pattern POST_IMAGE = Pattern.compile("/api/posts/[^/]+/image");
+
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+
+    public ConcurrencyLimitFilter(int maxConcurrentRequests, Duration acquireTimeout) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith("/actuator") || POST_IMAGE.matcher(path).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                reject(response);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void reject(HttpServletResponse response) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    }
+}
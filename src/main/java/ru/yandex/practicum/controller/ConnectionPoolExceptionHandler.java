@@ -0,0 +1,41 @@
+package ru.yandex.practicum.controller;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Пул не выдал соединение за spring.datasource.hikari.connection-timeout — это перегрузка,
+ * а не ошибка сервера: клиент получает 503 с Retry-After, как при отказе {@link ConcurrencyLimitFilter}.
+ * Остальные ошибки доступа к данным обрабатываются как раньше.
+ */
+@RestControllerAdvice
+public class ConnectionPoolExceptionHandler {
+
+    @ExceptionHandler({DataAccessException.class, TransactionException.class})
+    public ResponseEntity<Void> handleDataAccess(RuntimeException e) {
+        if (!isPoolTimeout(e)) {
+            throw e;
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    // Spring оборачивает исключение пула (CannotGetJdbcConnectionException, CannotCreateTransactionException
+    // или TransientDataAccessResourceException), поэтому ищем его по цепочке причин
+    static boolean isPoolTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,44 +1,82 @@
 package ru.yandex.practicum.controller;
 
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import ru.yandex.practicum.model.ImageSize;
 import ru.yandex.practicum.service.FileService;
+import ru.yandex.practicum.service.UploadLimitExceededException;
+import ru.yandex.practicum.service.storage.ImageMetrics;
+
+import java.io.IOException;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/api/posts")
 @CrossOrigin
 public class FileController {
     private final FileService fileService;
+    // Учёт отданных байтов изображений
+    private final ImageMetrics imageMetrics;
+    // Сколько браузер может не перепроверять изображение
+    private final Duration cacheMaxAge;
 
-    public FileController( FileService fileService) {
+    public FileController( FileService fileService,
+                           ImageMetrics imageMetrics,
+                           @Value("${blog.images.cache-max-age:1m}") Duration cacheMaxAge) {
         this.fileService = fileService;
+        this.imageMetrics = imageMetrics;
+        this.cacheMaxAge = cacheMaxAge;
     }
-    // 1. Загрузка изображения для поста
+    // 1. Загрузка изображения для поста.
+    // Часть image запрашивается у запроса только внутри сервиса, после получения разрешения на загрузку:
+    // до этого тело запроса не разбирается (spring.servlet.multipart.resolve-lazily)
     @PutMapping("/{id}/image")
     public ResponseEntity<Void> updateImage(
             @PathVariable Long id,
-            @RequestParam("image") MultipartFile file) {
-        if (fileService.updateImage(id, file) != null) {
-            return ResponseEntity.ok().build();
+            MultipartHttpServletRequest request) {
+        try {
+            if (fileService.updateImage(id, () -> request.getFile("image")) != null) {
+                return ResponseEntity.ok().build();
+            }
+        } catch (IllegalArgumentException e) {
+            // Нет файла, пустой файл, не JPEG или слишком большой
+            return ResponseEntity.badRequest().build();
+        } catch (UploadLimitExceededException e) {
+            // Превышен лимит одновременных загрузок
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
     }
 
-    // 2. Получение изображения поста
+    // 2. Получение изображения поста (size=thumb|medium — уменьшенная копия).
+    // Spring сам отвечает 304 на If-None-Match/If-Modified-Since и 206 на Range
     @GetMapping("/{id}/image")
-    public ResponseEntity<byte[]> getImage(@PathVariable Long id) {
-        byte[] image = fileService.getImage(id);
-        if (image.length == 0) {
+    public ResponseEntity<Resource> getImage(@PathVariable Long id,
+                                             @RequestParam(required = false) String size) throws IOException {
+        ImageSize imageSize = ImageSize.fromParam(size);
+        if (imageSize == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        Resource image = fileService.getImage(id, imageSize);
+        if (image == null) {
             return ResponseEntity.notFound().build();
         }
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.IMAGE_JPEG);
+        long lastModified = image.lastModified();
+        // ETag меняется при каждой перезаписи файла
+        String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(image.contentLength()) + "\"";
 
-        return new ResponseEntity<>(image, headers, HttpStatus.OK);
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.maxAge(cacheMaxAge).mustRevalidate())
+                .body(imageMetrics.counting(image, imageSize));
     }
 
 }
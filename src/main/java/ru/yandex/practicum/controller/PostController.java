@@ -8,12 +8,25 @@ import ru.yandex.practicum.dto.*;
 import ru.yandex.practicum.service.PostService;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/posts")
 @CrossOrigin
 public class PostController {
 
+    // Максимальный размер страницы ленты: страницы кешируются, и размер записи кеша не должен зависеть от клиента
+    private static final int MAX_PAGE_SIZE = 100;
+    // Ограничения пакетного запроса комментариев
+    private static final int MAX_BATCH_POSTS = 100;
+    private static final int MAX_COMMENTS_PER_POST = 100;
+    // Ограничение пакетного добавления комментариев
+    private static final int MAX_BATCH_COMMENTS = 1000;
+    // Максимальная страница комментариев одного поста (и размер страницы по умолчанию)
+    private static final int MAX_COMMENTS_PAGE = 500;
+    // Заголовок ответа со значением before для следующей страницы комментариев (нет — страница последняя)
+    static final String NEXT_BEFORE_HEADER = "X-Next-Before";
+
     private final PostService postService;
 
     public PostController(PostService postService) {
@@ -24,10 +37,31 @@ public class PostController {
     @GetMapping
     public ResponseEntity<PostsPageResponse> getPosts(
             @RequestParam String search,
-            @RequestParam int pageNumber,
-            @RequestParam int pageSize) {
-
-        PostsPageResponse response = postService.getPosts(search, pageNumber, pageSize);
+            @RequestParam(defaultValue = "1") int pageNumber,
+            @RequestParam int pageSize,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            @RequestParam(defaultValue = "false") boolean relevance) {
+
+        // Страницы нумеруются с 1: меньший номер дал бы отрицательный OFFSET
+        if (pageNumber < 1 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        // При наличии курсора работаем в keyset-режиме, pageNumber игнорируется
+        if (after != null && !after.isBlank()) {
+            try {
+                return ResponseEntity.ok(postService.getPostsAfter(search, after, pageSize));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (relevance) {
+            return ResponseEntity.ok(postService.getPostsByRelevance(search, pageNumber, pageSize, withTotal));
+        }
+        // Без общего количества lastPage не заполняется, а hasNext определяется по лишней записи
+        PostsPageResponse response = withTotal
+                ? postService.getPosts(search, pageNumber, pageSize)
+                : postService.getPostsWithoutTotal(search, pageNumber, pageSize);
         return ResponseEntity.ok(response);
     }
 
@@ -73,19 +107,45 @@ public class PostController {
     // 6. Увеличение количества лайков
     @PostMapping("/{id}/likes")
     public ResponseEntity<Integer> incrementLikes(@PathVariable Long id) {
-        try {
-            int newLikes = postService.incrementLikes(id);
-            return ResponseEntity.ok(newLikes);
-        } catch (Exception e) {
+        Integer newLikes = postService.incrementLikes(id);
+        if (newLikes == null) {
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(newLikes);
     }
 
    // 7. Получение комментариев к посту
+    // (before — ID последнего полученного комментария для запроса следующей страницы).
+    // Тело — массив комментариев, как и до постраничной выдачи; о том, что комментарии ещё есть,
+    // сообщает заголовок X-Next-Before
     @GetMapping("/{postId}/comments")
-    public ResponseEntity<List<CommentResponse>> getComments(@PathVariable Long postId) {
-        List<CommentResponse> responses = postService.getComments(postId);
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<List<CommentResponse>> getComments(
+            @PathVariable Long postId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "" + MAX_COMMENTS_PAGE) int limit) {
+        if (limit < 1 || limit > MAX_COMMENTS_PAGE) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Лишний комментарий показывает, есть ли следующая страница
+        List<CommentResponse> responses = postService.getComments(postId, before, limit + 1);
+        if (responses.size() <= limit) {
+            return ResponseEntity.ok(responses);
+        }
+        List<CommentResponse> page = responses.subList(0, limit);
+        return ResponseEntity.ok()
+                .header(NEXT_BEFORE_HEADER, String.valueOf(page.get(limit - 1).getId()))
+                .body(page);
+    }
+
+    // 7.1 Получение последних комментариев нескольких постов одним запросом
+    @GetMapping("/comments")
+    public ResponseEntity<Map<Long, List<CommentResponse>>> getCommentsBatch(
+            @RequestParam List<Long> ids,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_POSTS || limit < 1 || limit > MAX_COMMENTS_PER_POST) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(postService.getCommentsByPostIds(ids, limit));
     }
 
     // 8. Получение конкретного комментария
@@ -114,6 +174,19 @@ public class PostController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    // 9.1 Пакетное добавление комментариев (к одному или нескольким постам)
+    @PostMapping("/comments/batch")
+    public ResponseEntity<List<CommentResponse>> createComments(@RequestBody List<CommentBatchRequest> requests) {
+        if (requests.isEmpty() || requests.size() > MAX_BATCH_COMMENTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<CommentResponse> responses = postService.addComments(requests);
+        if (responses == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+
     // 10. Обновление комментария
     @PutMapping("/{postId}/comments/{commentId}")
     public ResponseEntity<CommentResponse> updateComment(
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.dto.ImportResponse;
+import ru.yandex.practicum.service.PostImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/posts")
+@CrossOrigin
+public class PostImportController {
+
+    private final PostImportService postImportService;
+
+    public PostImportController(PostImportService postImportService) {
+        this.postImportService = postImportService;
+    }
+
+    // 1. Массовый импорт постов: тело — NDJSON (по посту на строку), mode=batch|copy
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "application/json", "text/plain"})
+    public ResponseEntity<ImportResponse> importPosts(
+            InputStream body,
+            @RequestParam(defaultValue = "batch") String mode) throws IOException {
+        PostImportService.Mode importMode;
+        try {
+            importMode = PostImportService.Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(postImportService.importPosts(body, importMode));
+    }
+}
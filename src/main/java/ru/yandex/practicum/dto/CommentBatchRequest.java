@@ -0,0 +1,32 @@
+package ru.yandex.practicum.dto;
+
+// Элемент пакетного добавления комментариев
+public class CommentBatchRequest {
+    private Long postId;
+    private String text;
+
+    public CommentBatchRequest() {
+    }
+
+    public CommentBatchRequest(Long postId, String text) {
+        this.postId = postId;
+        this.text = text;
+    }
+
+    // Геттеры и сеттеры
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
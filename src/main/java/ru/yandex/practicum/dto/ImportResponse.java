@@ -0,0 +1,55 @@
+package ru.yandex.practicum.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResponse {
+    // Сколько постов сохранено
+    private long imported;
+    // Сколько строк отклонено
+    private long failed;
+    // Ошибки по строкам (не больше заданного предела, остальные только учитываются в failed)
+    private final List<ItemError> errors = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<ItemError> getErrors() {
+        return errors;
+    }
+
+    public void addImported(long count) {
+        imported += count;
+    }
+
+    public void addError(long line, String message, int maxReportedErrors) {
+        failed++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new ItemError(line, message));
+        }
+    }
+
+    // Ошибка в строке входных данных (нумерация строк с 1)
+    public static class ItemError {
+        private final long line;
+        private final String message;
+
+        public ItemError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
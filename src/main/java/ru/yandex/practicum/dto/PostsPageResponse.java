@@ -7,6 +7,8 @@ public class PostsPageResponse {
     private boolean hasPrev;
     private  boolean hasNext;
     private  int lastPage;
+    // Курсор для запроса следующей страницы (null, если следующей страницы нет)
+    private  String nextCursor;
 
     // Конструктор
     public PostsPageResponse(List<PostResponse> posts, boolean hasPrev, boolean hasNext, int lastPage) {
@@ -16,6 +18,12 @@ public class PostsPageResponse {
         this.lastPage = lastPage;
     }
 
+    public PostsPageResponse(List<PostResponse> posts, boolean hasPrev, boolean hasNext, int lastPage,
+                             String nextCursor) {
+        this(posts, hasPrev, hasNext, lastPage);
+        this.nextCursor = nextCursor;
+    }
+
     public PostsPageResponse() {
 
     }
@@ -36,4 +44,8 @@ public class PostsPageResponse {
     public int getLastPage() {
         return lastPage;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
 }
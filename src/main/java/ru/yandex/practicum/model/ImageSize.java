@@ -0,0 +1,39 @@
+package ru.yandex.practicum.model;
+
+import java.util.Locale;
+
+// Варианты изображения поста: оригинал и уменьшенные копии, генерируемые после загрузки
+public enum ImageSize {
+    ORIGINAL(0),
+    THUMB(200),
+    MEDIUM(800);
+
+    // Максимальная ширина копии в пикселях (0 — без изменения)
+    private final int maxWidth;
+
+    ImageSize(int maxWidth) {
+        this.maxWidth = maxWidth;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    // Имя файла варианта: 1.jpg, 1-thumb.jpg, 1-medium.jpg
+    public String fileName(Long postId) {
+        return this == ORIGINAL ? postId + ".jpg" : postId + "-" + name().toLowerCase(Locale.ROOT) + ".jpg";
+    }
+
+    // Разбор параметра ?size= (null, если значение неизвестно)
+    public static ImageSize fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return ORIGINAL;
+        }
+        for (ImageSize size : values()) {
+            if (size.name().equalsIgnoreCase(value.trim())) {
+                return size;
+            }
+        }
+        return null;
+    }
+}
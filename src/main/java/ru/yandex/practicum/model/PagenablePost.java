@@ -1,8 +1,7 @@
 package ru.yandex.practicum.model;
 
+// Строка ленты постов
 public class PagenablePost extends Post {
-    private int totalCount;
-    private int commentsCount;
 
     public PagenablePost(Long id, String title) {
         super(id, title);
@@ -11,20 +10,4 @@ public class PagenablePost extends Post {
     public PagenablePost() {
 
     }
-
-    public int getCommentsCount() {
-        return commentsCount;
-    }
-
-    public void setCommentsCount(int commentsCount) {
-        this.commentsCount = commentsCount;
-    }
-
-    public int getTotalCount() {
-        return totalCount;
-    }
-
-    public void setTotalCount(int totalCount) {
-        this.totalCount = totalCount;
-    }
 }
@@ -11,6 +11,8 @@ public class Post {
 
     private List<String> tags = new ArrayList<>();
     private int likesCount = 0;
+    // Денормализованный счётчик комментариев (колонка posts.comments_count)
+    private int commentsCount = 0;
 
     public Post() {
     }
@@ -70,5 +72,13 @@ public class Post {
         this.likesCount = likesCount;
     }
 
+    public int getCommentsCount() {
+        return commentsCount;
+    }
+
+    public void setCommentsCount(int commentsCount) {
+        this.commentsCount = commentsCount;
+    }
+
 }
 
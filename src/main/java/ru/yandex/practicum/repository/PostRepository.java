@@ -1,6 +1,13 @@
 package ru.yandex.practicum.repository;
 
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
@@ -12,74 +19,189 @@ import ru.yandex.practicum.model.Post;
 import ru.yandex.practicum.repository.mapper.CommentRowMapper;
 import ru.yandex.practicum.repository.mapper.PagenablePostRowMapper;
 import ru.yandex.practicum.repository.mapper.PostRowMapper;
+import ru.yandex.practicum.service.cache.LruCache;
+import ru.yandex.practicum.service.utils.CursorUtils;
 import ru.yandex.practicum.service.utils.StringUtils;
+import ru.yandex.practicum.service.utils.TransactionUtils;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.sql.PreparedStatement;
-import java.sql.Types;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
+// Каждый публичный метод замеряется таймером blog.repository с тегом method
 @Repository
+@Timed(value = "blog.repository", description = "Время выполнения запросов PostRepository", histogram = true)
 public class PostRepository {
 
+    // Сколько символов текста показывается в ленте
+    public static final int FEED_TEXT_PREVIEW_LENGTH = 128;
+
     private final JdbcTemplate jdbcTemplate;
+    // Кеш количества постов по нормализованной строке поиска
+    private final LruCache<String, Integer> countCache;
 
-    public PostRepository(JdbcTemplate jdbcTemplate) {
+    public PostRepository(JdbcTemplate jdbcTemplate,
+                          @Qualifier("postCountCache") LruCache<String, Integer> countCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.countCache = countCache;
     }
 
     // 1. Получить ленту постов с пагинацией и поиском
     public PostsPageResponse findPosts(String search, int pageNumber, int pageSize) {
+        return findPage(search, pageNumber, pageSize, true, false);
+    }
+
+    // 1.1 Получить ленту постов после курсора (keyset-пагинация по id)
+    public PostsPageResponse findPostsAfter(String search, long afterId, int pageSize) {
+        Map<String, String> result = StringUtils.splitByHash(search);
+
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        List<PagenablePost> posts = queryFeed(result, afterId, pageSize + 1, 0, false);
+        boolean hasNext = posts.size() > pageSize;
+        if (hasNext) {
+            posts = posts.subList(0, pageSize);
+        }
+
+        return new PostsPageResponse(toResponses(posts), true, hasNext, 0, nextCursor(posts, hasNext));
+    }
+
+    // 1.2 Получить ленту постов без подсчёта общего количества (lastPage не заполняется)
+    public PostsPageResponse findPostsWithoutTotal(String search, int pageNumber, int pageSize) {
+        return findPage(search, pageNumber, pageSize, false, false);
+    }
+
+    // 1.3 Получить ленту постов, упорядоченную по похожести заголовка на строку поиска
+    public PostsPageResponse findPostsByRelevance(String search, int pageNumber, int pageSize, boolean withTotal) {
+        return findPage(search, pageNumber, pageSize, withTotal, true);
+    }
+
+    // 1.4 Посчитать количество постов, подходящих под поиск (с кешированием)
+    public int countPosts(String search) {
+        return countCache.get(StringUtils.normalizeSearch(search), () -> {
+            Map<String, String> result = StringUtils.splitByHash(search);
+            List<Object> args = new ArrayList<>();
+            String sql = "SELECT COUNT(1) FROM posts p\n" + feedFilter(result, null, args);
+            return jdbcTemplate.queryForObject(sql, Integer.class, args.toArray());
+        });
+    }
+
+    // Страница ленты по номеру: с общим количеством (lastPage) или только с признаком hasNext
+    private PostsPageResponse findPage(String search, int pageNumber, int pageSize,
+                                       boolean withTotal, boolean byRelevance) {
         int offset = (pageNumber - 1) * pageSize;
         // Помещаем в мапу с ключами tags и tittles элементы из строки поиска
         Map<String, String> result = StringUtils.splitByHash(search);
+        boolean hasPrev = pageNumber > 1;
+
+        if (!withTotal) {
+            // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+            List<PagenablePost> posts = queryFeed(result, null, pageSize + 1, offset, byRelevance);
+            boolean hasNext = posts.size() > pageSize;
+            if (hasNext) {
+                posts = posts.subList(0, pageSize);
+            }
+            return new PostsPageResponse(toResponses(posts), hasPrev, hasNext, 0,
+                    byRelevance ? null : nextCursor(posts, hasNext));
+        }
 
-        String sql = """
+        List<PagenablePost> posts = queryFeed(result, null, pageSize, offset, byRelevance);
+        int lastPage = 0;
+        if (! posts.isEmpty()) {
+            // Неполная страница — последняя, считать общее количество не нужно.
+            // Значение из кеша не может быть меньше уже увиденного количества
+            int totalCount = posts.size() < pageSize
+                    ? offset + posts.size()
+                    : Math.max(offset + posts.size(), countPosts(search));
+            lastPage = (int) Math.ceil((double) totalCount / pageSize);
+        }
+        boolean hasNext = pageNumber < lastPage;
+
+        // Курсор имеет смысл только при сортировке по id
+        return new PostsPageResponse(toResponses(posts), hasPrev, hasNext, lastPage,
+                byRelevance ? null : nextCursor(posts, hasNext));
+    }
+
+    // Выборка страницы ленты: top-N без оконного подсчёта общего количества
+    private List<PagenablePost> queryFeed(Map<String, String> search, Long afterId, int limit, int offset,
+                                          boolean byRelevance) {
+        List<Object> args = new ArrayList<>();
+        // Из базы читаем только начало текста: на символ больше превью, чтобы сервис понял, что текст обрезан
+        StringBuilder sql = new StringBuilder("""
                     SELECT id,
                            title,
-                           text,
+                           LEFT(text, %d) AS text,
                            tags,
                            likes_count,
-                           COUNT(1) OVER() total_count,
-                           (SELECT COUNT(1) FROM comments c WHERE c.post_id=p.id) comments_count
+                           comments_count
                         FROM posts p
-                    WHERE p.title ILIKE ?
-                        AND ( STRING_TO_ARRAY(?,',') <@ p.tags
-                            OR STRING_TO_ARRAY(?,',') = ARRAY[]::TEXT[] )
-                    ORDER BY p.id DESC
-                    LIMIT ? OFFSET ?
-                """;
-
-        List<PagenablePost> posts = jdbcTemplate.query(
-                sql,
-                new Object[]{
-                        "%" + result.get("titles") + "%",
-                        result.get("tags"),
-                        result.get("tags"),
-                        pageSize,
-                        offset},
-                new int[]{
-                        java.sql.Types.VARCHAR,
-                        java.sql.Types.VARCHAR,
-                        java.sql.Types.VARCHAR,
-                        Types.INTEGER,
-                        Types.INTEGER
-                },
-                new PagenablePostRowMapper()
-        );
-        int lastPage = 0;
-        if (! posts.isEmpty()) {
-            lastPage = (int) Math.ceil((double) posts.getFirst().getTotalCount() / pageSize);
+                """.formatted(FEED_TEXT_PREVIEW_LENGTH + 1));
+        sql.append(feedFilter(search, afterId, args));
+        String titles = search.get("titles");
+        if (byRelevance && !titles.isEmpty()) {
+            // similarity из pg_trgm: чем ближе заголовок к строке поиска, тем выше пост
+            sql.append("    ORDER BY similarity(p.title, ?) DESC, p.id DESC\n");
+            args.add(titles);
+        } else {
+            sql.append("    ORDER BY p.id DESC\n");
         }
-        boolean hasPrev = pageNumber > 1;
-        boolean hasNext = pageNumber < lastPage;
+        sql.append("    LIMIT ? OFFSET ?\n");
+        args.add(limit);
+        args.add(offset);
+
+        return jdbcTemplate.query(sql.toString(), new PagenablePostRowMapper(), args.toArray());
+    }
+
+    // Условие WHERE ленты: поиск по заголовку, тегам и, при необходимости, курсору
+    private String feedFilter(Map<String, String> search, Long afterId, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        // Каждое слово — отдельный ILIKE: такие условия обслуживает триграммный индекс idx_posts_title_trgm
+        String titles = search.get("titles");
+        if (!titles.isEmpty()) {
+            for (String word : titles.split(" ")) {
+                conditions.add("p.title ILIKE ?");
+                args.add("%" + StringUtils.escapeLike(word) + "%");
+            }
+        }
+        // Без тегов условие не добавляется вовсе: OR с пустым массивом мешает использовать индекс.
+        // Оператор @> обслуживает GIN-индекс idx_posts_tags_gin
+        String tags = search.get("tags");
+        if (!tags.isEmpty()) {
+            conditions.add("p.tags @> STRING_TO_ARRAY(?,',')");
+            args.add(tags);
+        }
+        if (afterId != null) {
+            conditions.add("p.id < ?");
+            args.add(afterId);
+        }
+        if (conditions.isEmpty()) {
+            return "";
+        }
+        return "    WHERE " + String.join("\n        AND ", conditions) + "\n";
+    }
+
+    // Количество постов меняется при создании и удалении — сбрасываем кеш
+    private void invalidateCounts() {
+        countCache.invalidateAll();
+        // Повторно сбрасываем после коммита, чтобы не закешировать значение, посчитанное до него
+        TransactionUtils.afterCommit(countCache::invalidateAll);
+    }
 
-        // Конвертируем Post → PostResponse с подсчётом комментариев
-        List<PostResponse> responsePosts = posts.stream()
+    // Конвертируем Post → PostResponse с подсчётом комментариев
+    private List<PostResponse> toResponses(List<PagenablePost> posts) {
+        return posts.stream()
                 .map(post -> new PostResponse(
                         post.getId(),
                         post.getTitle(),
@@ -89,8 +211,14 @@ public class PostRepository {
                         post.getCommentsCount()
                 ))
                 .collect(Collectors.toList());
+    }
 
-        return new PostsPageResponse(responsePosts, hasPrev, hasNext, lastPage);
+    // Курсор строится по id последнего поста страницы
+    private String nextCursor(List<PagenablePost> posts, boolean hasNext) {
+        if (!hasNext || posts.isEmpty()) {
+            return null;
+        }
+        return CursorUtils.encode(posts.getLast().getId());
     }
 
     // 2. Получить пост по ID
@@ -127,6 +255,7 @@ public class PostRepository {
         );
         // Получаем сгенерированный ID
         post.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        invalidateCounts();
         return post;
     }
 
@@ -144,30 +273,106 @@ public class PostRepository {
                     return ps;
                 }
         );
+        // Смена заголовка или тегов меняет состав результатов поиска
+        invalidateCounts();
     }
 
     // 5. Удалить пост
     public boolean deleteById(Long id) {
         int rows = jdbcTemplate.update("DELETE FROM posts WHERE id = ?", id);
+        if (rows > 0) {
+            invalidateCounts();
+        }
         return rows > 0;
     }
 
     // 6. Увеличить лайки
-    public int incrementLikes(Long id) {
-        jdbcTemplate.update("UPDATE posts SET likes_count = likes_count + 1 WHERE id = ?", id);
-        return jdbcTemplate.queryForObject(
+    // Один оператор: увеличение и чтение нового значения (пусто, если поста нет)
+    public Optional<Integer> incrementLikes(Long id) {
+        List<Integer> likes = jdbcTemplate.queryForList(
+                "UPDATE posts SET likes_count = likes_count + 1 WHERE id = ? RETURNING likes_count",
+                Integer.class,
+                id
+        );
+        return likes.stream().findFirst();
+    }
+
+    // 7. Получить текущее количество лайков (пусто, если поста нет)
+    public Optional<Integer> findLikesCount(Long id) {
+        List<Integer> likes = jdbcTemplate.queryForList(
                 "SELECT likes_count FROM posts WHERE id = ?",
                 Integer.class,
                 id
         );
+        return likes.stream().findFirst();
+    }
+
+    // 8. Прибавить накопленные лайки к нескольким постам одним оператором (возвращает новые значения)
+    public Map<Long, Integer> addLikes(Map<Long, Long> deltas) {
+        Long[] ids = deltas.keySet().toArray(new Long[0]);
+        Long[] increments = Arrays.stream(ids).map(deltas::get).toArray(Long[]::new);
+
+        Map<Long, Integer> totals = new HashMap<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement("""
+                            UPDATE posts p
+                            SET likes_count = p.likes_count + d.delta
+                            FROM UNNEST(?::BIGINT[], ?::BIGINT[]) AS d(id, delta)
+                            WHERE p.id = d.id
+                            RETURNING p.id, p.likes_count
+                            """);
+                    ps.setArray(1, connection.createArrayOf("bigint", ids));
+                    ps.setArray(2, connection.createArrayOf("bigint", increments));
+                    return ps;
+                },
+                rs -> {
+                    totals.put(rs.getLong("id"), rs.getInt("likes_count"));
+                }
+        );
+        return totals;
     }
 
-    // 9. Получить комментарии поста
-    public List<Comment> findCommentsByPostId(Long postId) {
+    // 9. Получить страницу комментариев поста: не больше limit, от новых к старым, с ID меньше beforeId
+    // (null — с самого нового). Обслуживается индексом (post_id, id)
+    public List<Comment> findCommentsByPostId(Long postId, Long beforeId, int limit) {
+        if (beforeId == null) {
+            return jdbcTemplate.query(
+                    "SELECT id, post_id, text FROM comments WHERE post_id = ? ORDER BY id DESC LIMIT ?",
+                    new CommentRowMapper(),
+                    postId, limit
+            );
+        }
         return jdbcTemplate.query(
-                "SELECT * FROM comments WHERE post_id = ? ORDER BY id desc",
+                "SELECT id, post_id, text FROM comments WHERE post_id = ? AND id < ? ORDER BY id DESC LIMIT ?",
                 new CommentRowMapper(),
-                postId
+                postId, beforeId, limit
+        );
+    }
+
+    // 9.1 Получить последние комментарии нескольких постов одним запросом (не больше limitPerPost на пост).
+    // LATERAL выполняет по одному ограниченному поиску по индексу на каждый пост
+    public List<Comment> findCommentsByPostIds(Collection<Long> postIds, int limitPerPost) {
+        Long[] ids = postIds.toArray(new Long[0]);
+        return jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement("""
+                            SELECT c.id, c.post_id, c.text
+                            FROM UNNEST(?::BIGINT[]) AS p(id)
+                            CROSS JOIN LATERAL (
+                                SELECT id, post_id, text
+                                FROM comments
+                                WHERE post_id = p.id
+                                ORDER BY id DESC
+                                LIMIT ?
+                            ) c
+                            ORDER BY c.post_id, c.id DESC
+                            """);
+                    ps.setArray(1, connection.createArrayOf("bigint", ids));
+                    ps.setInt(2, limitPerPost);
+                    return ps;
+                },
+                new CommentRowMapper()
         );
     }
 
@@ -181,6 +386,19 @@ public class PostRepository {
         return count != null && count > 0;
     }
 
+    // 10.1 Из переданных ID постов оставить существующие (одним запросом)
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Long[] idArray = ids.toArray(new Long[0]);
+        return new HashSet<>(jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement("SELECT id FROM posts WHERE id = ANY(?)");
+                    ps.setArray(1, connection.createArrayOf("bigint", idArray));
+                    return ps;
+                },
+                (rs, rowNum) -> rs.getLong("id")
+        ));
+    }
+
     // 11. Получить количество комментариев для поста
     public int getCommentsCount(Long postId) {
         return jdbcTemplate.queryForObject(
@@ -192,21 +410,67 @@ public class PostRepository {
 
     // 12. Добавить комментарий (возвращает ID)
     public Long insertComment(Comment comment) {
+        // Вставка и увеличение счётчика выполняются одним оператором, то есть атомарно
+        return jdbcTemplate.queryForObject(
+                """
+                        WITH inserted AS (
+                            INSERT INTO comments (post_id, text) VALUES (?, ?)
+                            RETURNING id, post_id
+                        ), counted AS (
+                            UPDATE posts SET comments_count = comments_count + 1
+                            WHERE id = (SELECT post_id FROM inserted)
+                        )
+                        SELECT id FROM inserted
+                        """,
+                Long.class,
+                comment.getPostId(),
+                comment.getText()
+        );
+    }
+
+    // 12.1 Вставить несколько комментариев пакетом JDBC (возвращает ID в порядке комментариев)
+    // и увеличить счётчики комментариев затронутых постов одним оператором
+    public List<Long> insertComments(List<Comment> comments) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(
+                        "INSERT INTO comments (post_id, text) VALUES (?, ?)",
+                        new String[]{"id"}
+                ),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, comments.get(i).getPostId());
+                        ps.setString(2, comments.get(i).getText());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return comments.size();
+                    }
+                },
+                keyHolder
+        );
 
+        Long[] postIds = comments.stream().map(Comment::getPostId).toArray(Long[]::new);
         jdbcTemplate.update(
                 connection -> {
-                    PreparedStatement ps = connection.prepareStatement(
-                            "INSERT INTO comments (post_id, text) VALUES (?, ?)", new String[]{"id"}
-                    );
-                    ps.setLong(1, comment.getPostId());
-                    ps.setString(2, comment.getText());
+                    PreparedStatement ps = connection.prepareStatement("""
+                            UPDATE posts p
+                            SET comments_count = p.comments_count + d.cnt
+                            FROM (SELECT post_id, COUNT(*) AS cnt
+                                    FROM UNNEST(?::BIGINT[]) AS post_id
+                                  GROUP BY post_id) d
+                            WHERE p.id = d.post_id
+                            """);
+                    ps.setArray(1, connection.createArrayOf("bigint", postIds));
                     return ps;
-                },
-                keyHolder
+                }
         );
-        // Получаем сгенерированный ID
-        return Objects.requireNonNull(keyHolder.getKey()).longValue();
+
+        return keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.get("id")).longValue())
+                .toList();
     }
 
     // 13. Обновить комментарий
@@ -219,7 +483,18 @@ public class PostRepository {
 
     // 14. Удалить комментарий
     public boolean deleteComment(Long commentId) {
-        int rows = jdbcTemplate.update("DELETE FROM comments WHERE id = ?", commentId);
+        // Удаление и уменьшение счётчика выполняются одним оператором
+        int rows = jdbcTemplate.update(
+                """
+                        WITH deleted AS (
+                            DELETE FROM comments WHERE id = ?
+                            RETURNING post_id
+                        )
+                        UPDATE posts SET comments_count = comments_count - 1
+                        WHERE id IN (SELECT post_id FROM deleted)
+                        """,
+                commentId
+        );
         return rows > 0;
     }
 
@@ -236,4 +511,74 @@ public class PostRepository {
             return Optional.empty();
         }
     }
+
+    // 16. Пересчитать денормализованные счётчики комментариев (возвращает число исправленных постов)
+    public int reconcileCommentsCounts() {
+        return jdbcTemplate.update("""
+                UPDATE posts p
+                SET comments_count = actual.cnt
+                FROM (SELECT p2.id, COUNT(c.id) cnt
+                        FROM posts p2
+                        LEFT JOIN comments c ON c.post_id = p2.id
+                      GROUP BY p2.id) actual
+                WHERE p.id = actual.id
+                    AND p.comments_count <> actual.cnt
+                """);
+    }
+
+    // 17. Вставить несколько постов пакетами JDBC (ID не возвращаются)
+    public void saveAll(List<Post> posts) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO posts (title, text, tags, likes_count) VALUES (?, ?, ?, ?)",
+                posts,
+                posts.size(),
+                (ps, post) -> {
+                    ps.setString(1, post.getTitle());
+                    ps.setString(2, post.getText());
+                    ps.setArray(3, ps.getConnection().createArrayOf("text", post.getTags().toArray()));
+                    ps.setInt(4, post.getLikesCount());
+                }
+        );
+        invalidateCounts();
+    }
+
+    // 18. Загрузить посты через COPY (для больших объёмов в разы быстрее пакетной вставки)
+    public long copyPosts(List<Post> posts) {
+        String csv = toCsv(posts);
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                return copyManager.copyIn(
+                        "COPY posts (title, text, tags, likes_count) FROM STDIN WITH (FORMAT csv)",
+                        new StringReader(csv));
+            } catch (IOException e) {
+                throw new DataAccessResourceFailureException("Ошибка передачи данных COPY", e);
+            }
+        });
+        invalidateCounts();
+        return copied == null ? 0 : copied;
+    }
+
+    // Строки CSV для COPY: title, text, tags (литерал массива PostgreSQL), likes_count
+    private static String toCsv(List<Post> posts) {
+        StringBuilder csv = new StringBuilder();
+        for (Post post : posts) {
+            csv.append(csvField(post.getTitle())).append(',')
+                    .append(csvField(post.getText())).append(',')
+                    .append(csvField(arrayLiteral(post.getTags()))).append(',')
+                    .append(post.getLikesCount())
+                    .append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static String csvField(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String arrayLiteral(List<String> values) {
+        return values.stream()
+                .map(v -> '"' + v.replace("\\", "\\\\").replace("\"", "\\\"") + '"')
+                .collect(Collectors.joining(",", "{", "}"));
+    }
 }
@@ -9,10 +9,6 @@ import java.sql.SQLException;
 public class PagenablePostRowMapper implements RowMapper<PagenablePost> {
     @Override
     public PagenablePost mapRow(ResultSet rs, int rowNum) throws SQLException {
-        PagenablePost post = (PagenablePost) PostRowMapper.fillPost(rs, new PagenablePost());
-
-        post.setTotalCount(rs.getInt("total_count"));
-        post.setCommentsCount(rs.getInt("comments_count"));
-        return post;
+        return (PagenablePost) PostRowMapper.fillPost(rs, new PagenablePost());
     }
 }
@@ -27,6 +27,7 @@ public class PostRowMapper implements RowMapper<Post> {
         List<String> tagsList = Arrays.asList(stringArray);
         post.setTags(tagsList);
         post.setLikesCount(rs.getInt("likes_count"));
+        post.setCommentsCount(rs.getInt("comments_count"));
 
         return post;
     }
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.repository.sql;
+
+import java.util.function.Supplier;
+
+/**
+ * Признак «читать из основной базы» для текущего потока.
+ * Чтение сразу после записи не должно попасть на реплику, которая ещё не получила изменение:
+ * транзакция только для чтения, начавшая работу с базой внутри {@link #onPrimary(Supplier)},
+ * получает соединение основной базы вместо реплики (см. {@link ReplicaRoutingDataSource}).
+ * Соединение выбирается при первом операторе транзакции, поэтому признак нужно выставить до него.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = ThreadLocal.withInitial(() -> false);
+
+    private ReadRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(true);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY_REQUIRED.set(previous);
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get();
+    }
+}
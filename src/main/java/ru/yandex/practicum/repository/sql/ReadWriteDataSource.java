@@ -0,0 +1,47 @@
+package ru.yandex.practicum.repository.sql;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * DataSource приложения поверх пула основной базы.
+ * <p>
+ * Соединение берётся из пула только при первом операторе, поэтому транзакция, обслуженная
+ * из кеша, соединение не занимает. Транзакции только для чтения (@Transactional(readOnly = true))
+ * получают соединение из {@link ReplicaRoutingDataSource}, если реплики настроены,
+ * остальные запросы — из основной базы.
+ */
+public class ReadWriteDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private final ReplicaRoutingDataSource replicas;
+
+    public ReadWriteDataSource(DataSource primary, ReplicaRoutingDataSource replicas) {
+        super(primary);
+        // Настройки соединения по умолчанию (пул Hikari и PostgreSQL): без них прокси
+        // запросил бы соединение у базы, чтобы их узнать
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        this.replicas = replicas;
+        if (replicas != null) {
+            setReadOnlyDataSource(replicas);
+        }
+    }
+
+    // null, если реплики не настроены
+    public ReplicaRoutingDataSource getReplicas() {
+        return replicas;
+    }
+
+    // Пулы закрываются при остановке приложения вместе с бином DataSource
+    @Override
+    public void close() throws Exception {
+        if (replicas != null) {
+            replicas.close();
+        }
+        if (obtainTargetDataSource() instanceof AutoCloseable primary) {
+            primary.close();
+        }
+    }
+}
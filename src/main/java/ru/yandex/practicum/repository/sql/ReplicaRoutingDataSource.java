@@ -0,0 +1,193 @@
+package ru.yandex.practicum.repository.sql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник соединений для транзакций только для чтения: реплики по очереди (round-robin).
+ * <p>
+ * Реплика исключается из очереди после failureThreshold ошибок подключения подряд или после
+ * неудачной проверки: раз в healthCheckInterval у каждой реплики берётся соединение и запрашивается
+ * отставание от основной базы. Реплика, отстающая больше чем на maxLag, тоже исключается.
+ * Исчерпанный пул реплики (таймаут ожидания соединения без ошибки подключения) — это нагрузка,
+ * а не отказ: запрос идёт на следующую реплику, но реплика из очереди не исключается.
+ * Если доступных реплик нет или текущему потоку нужны собственные изменения
+ * ({@link ReadRouting#onPrimary}), выдаётся соединение основной базы в режиме только для чтения.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    // Отставание реплики в секундах. Если всё полученное уже применено, реплика не отстаёт,
+    // даже если основная база давно ничего не меняла. На основной базе функции возвращают NULL — 0
+    private static final String LAG_QUERY = """
+            SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                                 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END, 0)
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final int failureThreshold;
+    private final Duration maxLag;
+    private final ScheduledExecutorService healthChecker;
+
+    // maxLag = 0 — отставание не проверяется
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration healthCheckInterval,
+                                    int failureThreshold, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.maxLag = maxLag;
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReadRouting.isPrimaryRequired()) {
+            int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replica.connected();
+                    return connection;
+                } catch (SQLException e) {
+                    if (!isPoolExhausted(e) && replica.failed() >= failureThreshold) {
+                        replica.markDown(e.getMessage());
+                    }
+                }
+            }
+        }
+        return primaryConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Реплики используют учётные данные основной базы");
+    }
+
+    // Чтение без реплики: основная база, но с теми же ограничениями, что и на реплике
+    private Connection primaryConnection() throws SQLException {
+        Connection connection = primary.getConnection();
+        try {
+            connection.setReadOnly(true);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    // Количество реплик, которые сейчас участвуют в чтении
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    // Проверка доступности и отставания реплик (вызывается по расписанию)
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+                double lagSeconds;
+                try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                    resultSet.next();
+                    lagSeconds = resultSet.getDouble(1);
+                }
+                if (!maxLag.isZero() && lagSeconds * 1000 > maxLag.toMillis()) {
+                    replica.markDown(String.format("отставание %.1f с больше допустимого %s", lagSeconds, maxLag));
+                } else {
+                    replica.connected();
+                    replica.markUp();
+                }
+            } catch (SQLException e) {
+                // Все соединения реплики заняты запросами — значит, она работает; состояние не меняем
+                if (!isPoolExhausted(e)) {
+                    replica.markDown(e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Ошибка при проверке реплики {}", replica.dataSource, e);
+            }
+        }
+    }
+
+    // Hikari сообщает об исчерпании пула SQLTransientConnectionException без причины;
+    // при ошибке подключения к базе причиной указывается исключение драйвера
+    static boolean isPoolExhausted(SQLException e) {
+        return e instanceof SQLTransientConnectionException && e.getCause() == null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static class Replica {
+
+        private final DataSource dataSource;
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        // Ошибки подключения подряд: счётчик сбрасывается первым же выданным соединением
+        int failed() {
+            return failures.incrementAndGet();
+        }
+
+        void connected() {
+            if (failures.get() != 0) {
+                failures.set(0);
+            }
+        }
+
+        void markUp() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Реплика {} снова доступна", dataSource);
+            }
+        }
+
+        void markDown(String reason) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Реплика {} недоступна, чтение переключено на другие реплики или основную базу: {}",
+                        dataSource, reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ru.yandex.practicum.repository.sql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Журнал медленных SQL-запросов.
+ * Запросы дольше порога пишутся в лог (WARN) вместе с параметрами и числом строк.
+ * Если задан интервал EXPLAIN, самые медленные SELECT за интервал (не больше explainTop)
+ * повторяются с EXPLAIN (ANALYZE, BUFFERS) в транзакции только для чтения, и план пишется в лог (INFO).
+ */
+public class SlowQueryLog {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+    // Длинные строковые параметры (тексты постов) в логе обрезаются
+    private static final int MAX_PARAMETER_LENGTH = 100;
+    // Изменяющие операторы внутри запроса (в том числе блокировка SELECT ... FOR UPDATE)
+    private static final Pattern MODIFYING = Pattern.compile("\\b(insert|update|delete|merge)\\b");
+
+    private final long thresholdNanos;
+    private final DataSource explainDataSource;
+    private final int explainTop;
+    // Самые медленные запросы текущего интервала: в голове кучи — самый быстрый из них
+    private final PriorityQueue<SlowQuery> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(query -> query.elapsedNanos));
+    private final ScheduledExecutorService explainer;
+
+    /**
+     * @param threshold         порог, начиная с которого запрос считается медленным
+     * @param explainDataSource источник соединений для EXPLAIN (без замера, чтобы не замерять сам EXPLAIN);
+     *                          null — EXPLAIN отключён
+     * @param explainTop        сколько самых медленных запросов разбирать за интервал
+     * @param explainInterval   интервал между разборами
+     */
+    public SlowQueryLog(Duration threshold, DataSource explainDataSource, int explainTop, Duration explainInterval) {
+        this.thresholdNanos = threshold.toNanos();
+        this.explainDataSource = explainDataSource;
+        this.explainTop = explainTop;
+        if (explainDataSource != null && explainTop > 0) {
+            // Поток-демон: разбор планов не должен задерживать остановку приложения
+            this.explainer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "slow-query-explain");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMs = explainInterval.toMillis();
+            explainer.scheduleWithFixedDelay(this::explainQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.explainer = null;
+        }
+    }
+
+    /**
+     * Учесть выполненный оператор.
+     *
+     * @param sql          текст оператора
+     * @param parameters   параметры по номерам (для пакета — первого набора)
+     * @param elapsedNanos время выполнения
+     * @param rows         число прочитанных или изменённых строк
+     */
+    public void record(String sql, Map<Integer, Object> parameters, long elapsedNanos, long rows) {
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+        log.warn("Медленный запрос: {} мс, строк {}: {} {}",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows, compact(sql), format(parameters));
+
+        if (explainer != null && isSelect(sql)) {
+            synchronized (slowest) {
+                slowest.add(new SlowQuery(sql, new TreeMap<>(parameters), elapsedNanos));
+                if (slowest.size() > explainTop) {
+                    slowest.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Выполнить EXPLAIN (ANALYZE, BUFFERS) для самых медленных запросов с прошлого вызова
+     * и записать планы в лог.
+     *
+     * @return планы в порядке убывания времени запроса
+     */
+    public List<String> explainSlowest() {
+        List<SlowQuery> queries;
+        synchronized (slowest) {
+            queries = new ArrayList<>(slowest);
+            slowest.clear();
+        }
+        queries.sort(Comparator.comparingLong((SlowQuery query) -> query.elapsedNanos).reversed());
+
+        List<String> plans = new ArrayList<>(queries.size());
+        for (SlowQuery query : queries) {
+            try {
+                String plan = explain(query);
+                log.info("План медленного запроса ({} мс): {} {}\n{}",
+                        TimeUnit.NANOSECONDS.toMillis(query.elapsedNanos), compact(query.sql),
+                        format(query.parameters), plan);
+                plans.add(plan);
+            } catch (SQLException e) {
+                log.warn("Не удалось получить план запроса {}", compact(query.sql), e);
+            }
+        }
+        return plans;
+    }
+
+    // EXPLAIN ANALYZE выполняет запрос, поэтому работаем в транзакции только для чтения и откатываем её
+    private String explain(SlowQuery query) throws SQLException {
+        try (Connection connection = explainDataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + query.sql)) {
+                for (Map.Entry<Integer, Object> parameter : query.parameters.entrySet()) {
+                    ps.setObject(parameter.getKey(), parameter.getValue());
+                }
+                StringJoiner plan = new StringJoiner("\n");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        plan.add(rs.getString(1));
+                    }
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void explainQuietly() {
+        try {
+            explainSlowest();
+        } catch (RuntimeException e) {
+            log.warn("Ошибка при разборе медленных запросов", e);
+        }
+    }
+
+    // Повторяются только чистые чтения: WITH с INSERT/UPDATE/DELETE и SELECT ... FOR UPDATE
+    // в транзакции только для чтения не выполнятся, и каждый разбор заканчивался бы ошибкой в логе
+    private static boolean isSelect(String sql) {
+        String text = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return (text.startsWith("select") || text.startsWith("with")) && !MODIFYING.matcher(text).find();
+    }
+
+    // Запрос в одну строку
+    private static String compact(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+
+    private static String format(Map<Integer, Object> parameters) {
+        if (parameters.isEmpty()) {
+            return "";
+        }
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        new TreeMap<>(parameters).forEach((index, value) -> {
+            String text = String.valueOf(value);
+            if (text.length() > MAX_PARAMETER_LENGTH) {
+                text = text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+            }
+            joiner.add(index + "=" + text);
+        });
+        return joiner.toString();
+    }
+
+    private static class SlowQuery {
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+        private final long elapsedNanos;
+
+        SlowQuery(String sql, Map<Integer, Object> parameters, long elapsedNanos) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
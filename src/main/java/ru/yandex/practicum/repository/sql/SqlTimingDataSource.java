@@ -0,0 +1,198 @@
+package ru.yandex.practicum.repository.sql;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Источник соединений, замеряющий каждый оператор, выполненный через JdbcTemplate
+ * (и любой другой код поверх этого DataSource), и передающий результат в {@link SlowQueryLog}.
+ * <p>
+ * Соединения и операторы оборачиваются динамическими прокси: запоминаются параметры set*(),
+ * замеряется время execute*(). Для SELECT число строк считается по вызовам ResultSet.next()
+ * и передаётся при закрытии ResultSet, для изменений — по результату executeUpdate/executeBatch.
+ * Работа с конкретным драйвером (unwrap(PGConnection.class) для COPY) проходит без изменений.
+ */
+public class SqlTimingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SqlTimingDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    // Обёртка заменяет бин DataSource, поэтому закрытие пула при остановке приложения передаётся дальше
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable target) {
+            target.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SqlTimingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    // Вызов метода исходного объекта с исходным исключением вместо InvocationTargetException.
+    // equals/hashCode сравнивают сами прокси: Spring сравнивает соединения при освобождении
+    private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+            return proxy == args[0];
+        }
+        if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+            return System.identityHashCode(proxy);
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlTimingDataSource.invoke(proxy, target, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" -> SqlTimingDataSource.proxy(PreparedStatement.class,
+                        new StatementHandler((Statement) result, (String) args[0]));
+                case "createStatement" -> SqlTimingDataSource.proxy(Statement.class,
+                        new StatementHandler((Statement) result, null));
+                default -> result;
+            };
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private String sql;
+        // Параметры текущего набора; для пакета сохраняются параметры первого набора
+        private final Map<Integer, Object> parameters = new HashMap<>();
+        private Map<Integer, Object> batchParameters;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch") && batchParameters == null) {
+                batchParameters = new HashMap<>(parameters);
+                if (args != null && args.length == 1) {
+                    sql = (String) args[0];
+                }
+            } else if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            return SqlTimingDataSource.invoke(proxy, target, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            String statementSql = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            Map<Integer, Object> statementParameters = batchParameters != null ? batchParameters : parameters;
+
+            long started = System.nanoTime();
+            Object result = SqlTimingDataSource.invoke(proxy, target, method, args);
+            long elapsed = System.nanoTime() - started;
+
+            if (result instanceof ResultSet resultSet) {
+                // Строки считаются по мере чтения, запись в журнал — при закрытии
+                return SqlTimingDataSource.proxy(ResultSet.class,
+                        new ResultSetHandler(resultSet, statementSql, new HashMap<>(statementParameters), elapsed));
+            }
+            long rows = switch (result) {
+                case Integer count -> count;
+                case Long count -> count;
+                case int[] counts -> sum(counts);
+                case long[] counts -> sum(counts);
+                // execute(): число изменённых строк (или -1, если результат — набор строк)
+                case null, default -> Math.max(target.getUpdateCount(), 0);
+            };
+            slowQueryLog.record(statementSql, statementParameters, elapsed, rows);
+            batchParameters = null;
+            return result;
+        }
+
+        private static long sum(int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+
+        private static long sum(long[] counts) {
+            long total = 0;
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+    }
+
+    private class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+        private final long elapsedNanos;
+        private long rows;
+        private boolean recorded;
+
+        ResultSetHandler(ResultSet target, String sql, Map<Integer, Object> parameters, long elapsedNanos) {
+            this.target = target;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlTimingDataSource.invoke(proxy, target, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (method.getName().equals("close") && !recorded) {
+                recorded = true;
+                slowQueryLog.record(sql, parameters, elapsedNanos, rows);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.PostRepository;
+
+/**
+ * Разовая сверка posts.comments_count с фактическим количеством комментариев.
+ * Запускается при старте приложения, если включено свойство
+ * blog.comments-count.reconcile-on-startup (например, после миграции существующей базы).
+ */
+@Component
+@ConditionalOnProperty(name = "blog.comments-count.reconcile-on-startup", havingValue = "true")
+public class CommentsCountReconciler implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentsCountReconciler.class);
+
+    private final PostRepository postRepository;
+
+    public CommentsCountReconciler(PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int fixed = postRepository.reconcileCommentsCounts();
+        log.info("Сверка счётчиков комментариев завершена, исправлено постов: {}", fixed);
+    }
+}
@@ -1,58 +1,296 @@
 package ru.yandex.practicum.service;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import ru.yandex.practicum.model.ImageSize;
+import ru.yandex.practicum.service.cache.LruCache;
+import ru.yandex.practicum.service.storage.CachedImageResource;
+import ru.yandex.practicum.service.storage.ImageStorage;
 import ru.yandex.practicum.service.utils.FileUtils;
+import ru.yandex.practicum.service.utils.ImageUtils;
 
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 public class FileService {
-    private final String UPLOAD_DIR = "uploads/";
 
-    // 1. Обновить изображение поста
+    private static final Logger log = LoggerFactory.getLogger(FileService.class);
+
+    // Хранилище файлов (локальный диск или S3, см. ImageStorageConfig)
+    private final ImageStorage storage;
+    // Содержимое популярных изображений в памяти; файлы крупнее maxCachedImageSize отдаются из хранилища
+    private final LruCache<String, CachedImageResource> imageCache;
+    private final long maxCachedImageSize;
+    // Каталог для временных файлов загрузки и генерации копий
+    private final Path stagingDir;
+    // Максимальный размер изображения: в байтах и в пикселях (декодирование занимает ~4 байта на пиксель)
+    private final long maxSize;
+    private final long maxPixels;
+    // Ограничение одновременных загрузок: не даём пачке больших файлов занять диск и потоки
+    private final Semaphore uploadPermits;
+    private final Duration uploadWait;
+    // Фоновая генерация уменьшенных копий, чтобы не задерживать ответ на загрузку.
+    // Очередь ограничена, а на пост в ней не больше одной задачи: задача берёт текущий оригинал
+    private final ThreadPoolExecutor renditionExecutor;
+    private final Set<Long> queuedRenditions = ConcurrentHashMap.newKeySet();
+
+    public FileService(ImageStorage storage,
+                       @Qualifier("imageCache") LruCache<String, CachedImageResource> imageCache,
+                       @Value("${blog.cache.images.max-entry-size:2MB}") DataSize maxCachedImageSize,
+                       @Value("${blog.images.staging-dir:uploads/.staging}") String stagingDir,
+                       @Value("${blog.images.max-size:10MB}") DataSize maxSize,
+                       @Value("${blog.images.max-pixels:25000000}") long maxPixels,
+                       @Value("${blog.images.max-concurrent-uploads:4}") int maxConcurrentUploads,
+                       @Value("${blog.images.upload-wait:5s}") Duration uploadWait,
+                       @Value("${blog.images.rendition-threads:2}") int renditionThreads,
+                       @Value("${blog.images.rendition-queue-size:100}") int renditionQueueSize) {
+        this.storage = storage;
+        this.imageCache = imageCache;
+        this.maxCachedImageSize = maxCachedImageSize.toBytes();
+        this.stagingDir = Paths.get(stagingDir);
+        this.maxSize = maxSize.toBytes();
+        this.maxPixels = maxPixels;
+        this.uploadPermits = new Semaphore(maxConcurrentUploads, true);
+        this.uploadWait = uploadWait;
+        this.renditionExecutor = new ThreadPoolExecutor(renditionThreads, renditionThreads,
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(renditionQueueSize), r -> {
+            Thread thread = new Thread(r, "image-renditions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // 1. Обновить изображение поста.
+    // Содержимое потоково пишется во временный файл и только после проверки передаётся в хранилище,
+    // поэтому читатели никогда не видят недописанный файл
     public String updateImage(Long id, MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new IllegalArgumentException("Файл изображения не может быть пустым");
-        }
+        return updateImage(id, () -> file);
+    }
 
-        String originalFilename = file.getOriginalFilename();
-        String extension = FileUtils.getFileExtension(originalFilename);
-        if (!FileUtils.isAllowedExtension(extension)) {
-            throw new IllegalArgumentException("Недопустимое расширение файла: " + extension);
-        }
+    // 1.1 Обновить изображение поста, запросив файл только после получения разрешения на загрузку.
+    // При отложенном разборе multipart (spring.servlet.multipart.resolve-lazily) тело запроса читается
+    // и сохраняется контейнером на диск в upload.get(), поэтому лимит одновременных загрузок действует и на него
+    @Timed(value = "blog.images", extraTags = {"operation", "store"}, histogram = true)
+    public String updateImage(Long id, Supplier<MultipartFile> upload) {
+        acquireUploadPermit();
+        Path tempFile = null;
         try {
-            Path uploadDir = Paths.get(UPLOAD_DIR);
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
+            MultipartFile file = upload.get();
+            if (file == null || file.isEmpty()) {
+                throw new IllegalArgumentException("Файл изображения не может быть пустым");
+            }
+            if (file.getSize() > maxSize) {
+                throw new IllegalArgumentException("Размер файла превышает " + maxSize + " байт");
             }
 
-            // Сохраняем файл
-            String relativePath = id + "." + extension;
-            Path filePath = uploadDir.resolve(relativePath);
-            file.transferTo(filePath);
+            String key = ImageSize.ORIGINAL.fileName(id);
+            tempFile = createTempFile(id + "-");
+            try (InputStream in = file.getInputStream();
+                 OutputStream out = Files.newOutputStream(tempFile)) {
+                copyValidated(in, out);
+            }
+            checkPixels(tempFile);
+            // Копии старого изображения больше не актуальны: до генерации новых отдаём оригинал
+            deleteRenditions(id);
+            storage.store(key, tempFile);
+            evictImages(id);
 
-            return relativePath;
+            scheduleRenditions(id);
+            return key;
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            deleteQuietly(tempFile);
+            uploadPermits.release();
         }
     }
 
-    // 2. Получить изображение поста
-    public byte[] getImage(Long id) {
+    // 2. Получить изображение поста нужного размера (null, если изображения нет).
+    // Если уменьшенная копия ещё не готова, отдаётся оригинал.
+    // Небольшие файлы отдаются из кеша в памяти, крупные потоково читаются из хранилища при записи ответа
+    @Timed(value = "blog.images", extraTags = {"operation", "load"}, histogram = true)
+    public Resource getImage(Long id, ImageSize size) {
+        if (size != ImageSize.ORIGINAL) {
+            Resource rendition = loadCached(size.fileName(id));
+            if (rendition != null) {
+                return rendition;
+            }
+        }
+        return loadCached(ImageSize.ORIGINAL.fileName(id));
+    }
 
-        Path filePath = Paths.get(UPLOAD_DIR).resolve(id + ".jpg").normalize();
-        if (Files.exists(filePath)) {
+    // Файл из кеша или из хранилища; небольшие файлы при этом попадают в кеш
+    private Resource loadCached(String key) {
+        Resource[] uncached = new Resource[1];
+        Resource cached = imageCache.get(key, () -> {
             try {
-                return Files.readAllBytes(filePath);
+                Resource resource = storage.load(key);
+                if (resource == null || resource.contentLength() > maxCachedImageSize) {
+                    uncached[0] = resource;
+                    return null;
+                }
+                return new CachedImageResource(key, resource.getContentAsByteArray(), resource.lastModified());
             } catch (IOException e) {
                 throw new RuntimeException(e.getMessage(), e);
             }
-        } else {
-            return new byte[0];
+        });
+        return cached != null ? cached : uncached[0];
+    }
+
+    // Задача генерации копий ставится, только если для поста её ещё нет в очереди.
+    // При переполненной очереди копии не создаются — отдаётся оригинал
+    private void scheduleRenditions(Long id) {
+        if (!queuedRenditions.add(id)) {
+            return;
+        }
+        try {
+            renditionExecutor.execute(() -> {
+                queuedRenditions.remove(id);
+                generateRenditions(id);
+            });
+        } catch (RejectedExecutionException e) {
+            queuedRenditions.remove(id);
+            log.warn("Очередь генерации уменьшенных копий заполнена, копии для поста {} не созданы", id);
+        }
+    }
+
+    // 3. Сгенерировать уменьшенные копии изображения поста
+    void generateRenditions(Long id) {
+        String key = ImageSize.ORIGINAL.fileName(id);
+        try {
+            Resource original = storage.load(key);
+            if (original == null) {
+                return;
+            }
+            long version = original.lastModified();
+            BufferedImage image;
+            try (InputStream in = original.getInputStream()) {
+                image = ImageUtils.read(in, maxPixels);
+            }
+            for (ImageSize size : ImageSize.values()) {
+                if (size == ImageSize.ORIGINAL) {
+                    continue;
+                }
+                Path tempFile = createTempFile(size.fileName(id) + "-");
+                try {
+                    ImageUtils.writeJpeg(ImageUtils.scaleToWidth(image, size.getMaxWidth()), tempFile);
+                    // Оригинал успели заменить — копии для него сделает следующая задача
+                    Resource current = storage.load(key);
+                    if (current == null || current.lastModified() != version) {
+                        return;
+                    }
+                    storage.store(size.fileName(id), tempFile);
+                    imageCache.invalidate(size.fileName(id));
+                } finally {
+                    deleteQuietly(tempFile);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось создать уменьшенные копии изображения поста {}", id, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renditionExecutor.shutdown();
+    }
+
+    // Сбрасываем из кеша оригинал и все копии изображения поста
+    private void evictImages(Long id) {
+        for (ImageSize size : ImageSize.values()) {
+            imageCache.invalidate(size.fileName(id));
+        }
+    }
+
+    private void deleteRenditions(Long id) throws IOException {
+        for (ImageSize size : ImageSize.values()) {
+            if (size != ImageSize.ORIGINAL) {
+                storage.delete(size.fileName(id));
+            }
+        }
+    }
+
+    private Path createTempFile(String prefix) throws IOException {
+        Files.createDirectories(stagingDir);
+        return Files.createTempFile(stagingDir, prefix, ".tmp");
+    }
+
+    private void acquireUploadPermit() {
+        try {
+            if (!uploadPermits.tryAcquire(uploadWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new UploadLimitExceededException("Слишком много одновременных загрузок изображений");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UploadLimitExceededException("Загрузка изображения прервана", e);
+        }
+    }
+
+    // Копирует поток, проверяя сигнатуру JPEG в первых байтах и не выходя за maxSize
+    private void copyValidated(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int headerLength = in.readNBytes(buffer, 0, FileUtils.magicLength());
+        if (!FileUtils.isJpeg(buffer, headerLength)) {
+            throw new IllegalArgumentException("Файл не является изображением JPEG");
+        }
+        out.write(buffer, 0, headerLength);
+
+        long written = headerLength;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            written += read;
+            // Заявленный размер мог быть неверным — проверяем фактический
+            if (written > maxSize) {
+                throw new IllegalArgumentException("Размер файла превышает " + maxSize + " байт");
+            }
+            out.write(buffer, 0, read);
+        }
+    }
+
+    // Проверка размеров в пикселях по заголовку загруженного файла.
+    // Файл с нечитаемым заголовком не декодируется вовсе, поэтому принимается: копий для него не будет
+    private void checkPixels(Path file) {
+        Dimension size;
+        try {
+            size = ImageUtils.readSize(file);
+        } catch (IOException e) {
+            return;
+        }
+        ImageUtils.checkPixels(size.width, size.height, maxPixels);
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Не удалось удалить временный файл — результат загрузки от этого не меняется
         }
     }
 
@@ -0,0 +1,225 @@
+package ru.yandex.practicum.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.PostRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Отложенная запись лайков (write-behind).
+ * Лайки накапливаются в памяти в {@link LongAdder} на каждый пост и периодически
+ * сбрасываются в базу одним оператором. Вызывающему возвращается приблизительное
+ * текущее значение: последнее известное из базы плюс ещё не записанные лайки.
+ * <p>
+ * Потери при аварийном завершении ограничены blog.likes.write-behind.max-pending:
+ * при достижении порога лайки пишутся в базу синхронно, пока фоновый сброс не догонит.
+ * При штатной остановке приложения накопленное сбрасывается в {@link #shutdown()}.
+ */
+@Component
+public class LikeBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeBuffer.class);
+
+    private final PostRepository postRepository;
+    private final boolean enabled;
+    private final long maxPending;
+    private final int maxTrackedPosts;
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+    // Общее количество незаписанных лайков (для ограничения потерь)
+    private final LongAdder pendingTotal = new LongAdder();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    // Вызывается с ID постов, лайки которых записаны в базу (сброс кеша постов)
+    private volatile Consumer<Collection<Long>> flushListener = ids -> {
+    };
+
+    public LikeBuffer(PostRepository postRepository,
+                      @Value("${blog.likes.write-behind.enabled:false}") boolean enabled,
+                      @Value("${blog.likes.write-behind.flush-interval:500ms}") Duration flushInterval,
+                      @Value("${blog.likes.write-behind.max-pending:10000}") long maxPending,
+                      @Value("${blog.likes.write-behind.max-tracked-posts:100000}") int maxTrackedPosts) {
+        this.postRepository = postRepository;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.maxTrackedPosts = maxTrackedPosts;
+        if (enabled) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "like-buffer-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMs = flushInterval.toMillis();
+            flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void onFlush(Consumer<Collection<Long>> listener) {
+        this.flushListener = listener;
+    }
+
+    // Лайки поста, ещё не записанные в базу
+    public long pending(Long id) {
+        Counter counter = counters.get(id);
+        return counter == null ? 0 : counter.pending.sum();
+    }
+
+    // 1. Учесть лайк (возвращает приблизительное количество лайков или null, если поста нет)
+    public Integer increment(Long id) {
+        Counter counter = counters.get(id);
+        if (counter == null) {
+            if (counters.size() >= maxTrackedPosts) {
+                // Слишком много отслеживаемых постов — пишем напрямую
+                return postRepository.incrementLikes(id).orElse(null);
+            }
+            Optional<Integer> persisted = postRepository.findLikesCount(id);
+            if (persisted.isEmpty()) {
+                return null;
+            }
+            counter = counters.computeIfAbsent(id, k -> new Counter(persisted.get()));
+        }
+
+        if (pendingTotal.sum() >= maxPending) {
+            // Фоновый сброс не успевает — не увеличиваем объём возможной потери
+            requestFlush();
+            Optional<Integer> incremented = postRepository.incrementLikes(id);
+            if (incremented.isEmpty()) {
+                // Пост удалён, пока лайки копились
+                forget(id);
+                return null;
+            }
+            int likes = incremented.get();
+            counter.base = likes;
+            return (int) (likes + counter.pending.sum());
+        }
+        counter.pending.increment();
+        pendingTotal.increment();
+        if (counters.get(id) != counter) {
+            // Сброс успел убрать счётчик как пустой — переносим лайк в отслеживаемые
+            restore(id, counter);
+        }
+        return (int) (counter.base + counter.pending.sum());
+    }
+
+    // 2. Забыть пост (после удаления)
+    public void forget(Long id) {
+        Counter counter = counters.remove(id);
+        if (counter != null) {
+            pendingTotal.add(-counter.pending.sumThenReset());
+        }
+    }
+
+    // 3. Записать накопленные лайки в базу
+    public synchronized void flush() {
+        flushRequested.set(false);
+        Map<Long, Long> deltas = new HashMap<>();
+        counters.forEach((id, counter) -> {
+            // sumThenReset обнуляет ячейки атомарно: параллельные лайки попадут в этот или следующий сброс
+            long delta = counter.pending.sumThenReset();
+            if (delta != 0) {
+                deltas.put(id, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            removeIdleCounters();
+            return;
+        }
+
+        long flushed = deltas.values().stream().mapToLong(Long::longValue).sum();
+        try {
+            Map<Long, Integer> totals = postRepository.addLikes(deltas);
+            totals.forEach((id, likes) -> {
+                Counter counter = counters.get(id);
+                if (counter != null) {
+                    counter.base = likes;
+                }
+            });
+            pendingTotal.add(-flushed);
+            flushListener.accept(deltas.keySet());
+            removeIdleCounters();
+        } catch (RuntimeException e) {
+            // Возвращаем несохранённое обратно, повторим при следующем сбросе
+            deltas.forEach((id, delta) -> {
+                Counter counter = counters.get(id);
+                if (counter != null) {
+                    counter.pending.add(delta);
+                }
+            });
+            throw e;
+        }
+    }
+
+    // Посты без незаписанных лайков перестают отслеживаться: иначе после max-tracked-posts
+    // разных постов все новые лайки пошли бы в базу синхронно
+    private void removeIdleCounters() {
+        counters.forEach((id, counter) -> {
+            if (counter.pending.sum() == 0 && counters.remove(id, counter)) {
+                restore(id, counter);
+            }
+        });
+    }
+
+    // Лайки, попавшие в уже удалённый счётчик, переносятся в счётчик из таблицы
+    private void restore(Long id, Counter removed) {
+        long late = removed.pending.sumThenReset();
+        if (late != 0) {
+            counters.computeIfAbsent(id, k -> new Counter(removed.base)).pending.add(late);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    private void requestFlush() {
+        if (flusher != null && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать накопленные лайки, повтор при следующем сбросе", e);
+        }
+    }
+
+    private static class Counter {
+        // Последнее известное значение в базе
+        volatile long base;
+        // Лайки, ещё не записанные в базу
+        final LongAdder pending = new LongAdder();
+
+        Counter(long base) {
+            this.base = base;
+        }
+    }
+}
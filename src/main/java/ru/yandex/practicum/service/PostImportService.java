@@ -0,0 +1,158 @@
+package ru.yandex.practicum.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.dto.ImportResponse;
+import ru.yandex.practicum.dto.PostRequest;
+import ru.yandex.practicum.dto.PostsPageResponse;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.service.cache.LruCache;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Массовый импорт постов из NDJSON (один JSON-объект PostRequest на строку).
+ * Вход читается построчно, в памяти держится только текущая пачка.
+ * Каждая пачка сохраняется в своей транзакции; если пачка отклонена базой,
+ * её строки сохраняются по одной, чтобы сообщить об ошибке в конкретной строке.
+ */
+@Service
+public class PostImportService {
+
+    // Способ записи: пакеты INSERT или COPY
+    public enum Mode {
+        BATCH,
+        COPY
+    }
+
+    private static final int MAX_TITLE_LENGTH = 255;
+
+    private final PostRepository postRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final LruCache<String, PostsPageResponse> feedCache;
+    private final int batchSize;
+    private final int copyChunkSize;
+    private final int maxReportedErrors;
+
+    public PostImportService(PostRepository postRepository,
+                             ObjectMapper objectMapper,
+                             TransactionTemplate transactionTemplate,
+                             @Qualifier("feedCache") LruCache<String, PostsPageResponse> feedCache,
+                             @Value("${blog.import.batch-size:1000}") int batchSize,
+                             @Value("${blog.import.copy-chunk-size:10000}") int copyChunkSize,
+                             @Value("${blog.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.postRepository = postRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.feedCache = feedCache;
+        this.batchSize = batchSize;
+        this.copyChunkSize = copyChunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    // 1. Импортировать посты из потока NDJSON
+    public ImportResponse importPosts(InputStream body, Mode mode) throws IOException {
+        ImportResponse result = new ImportResponse();
+        int chunkSize = mode == Mode.COPY ? copyChunkSize : batchSize;
+        List<Post> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                Post post = parse(line, lineNumber, result);
+                if (post == null) {
+                    continue;
+                }
+                chunk.add(post);
+                chunkLines.add(lineNumber);
+                if (chunk.size() >= chunkSize) {
+                    flush(chunk, chunkLines, mode, result);
+                }
+            }
+        } finally {
+            // Всё, что успели прочитать, сохраняем даже при обрыве входного потока
+            if (!chunk.isEmpty()) {
+                flush(chunk, chunkLines, mode, result);
+            }
+            if (result.getImported() > 0) {
+                feedCache.invalidateAll();
+            }
+        }
+        return result;
+    }
+
+    // Разбор и проверка строки (null, если строка отклонена)
+    private Post parse(String line, long lineNumber, ImportResponse result) {
+        PostRequest request;
+        try {
+            request = objectMapper.readValue(line, PostRequest.class);
+        } catch (JacksonException e) {
+            result.addError(lineNumber, "Некорректный JSON: " + e.getOriginalMessage(), maxReportedErrors);
+            return null;
+        }
+        if (request.getTitle() == null || request.getTitle().isBlank()) {
+            result.addError(lineNumber, "Не указан заголовок", maxReportedErrors);
+            return null;
+        }
+        if (request.getTitle().length() > MAX_TITLE_LENGTH) {
+            result.addError(lineNumber, "Заголовок длиннее " + MAX_TITLE_LENGTH + " символов", maxReportedErrors);
+            return null;
+        }
+        if (request.getText() == null) {
+            result.addError(lineNumber, "Не указан текст", maxReportedErrors);
+            return null;
+        }
+        List<String> tags = request.getTags() == null ? List.of() : request.getTags();
+        if (tags.stream().anyMatch(Objects::isNull)) {
+            result.addError(lineNumber, "Пустой тег", maxReportedErrors);
+            return null;
+        }
+        return new Post(null, request.getTitle(), request.getText(), tags, 0);
+    }
+
+    private void flush(List<Post> chunk, List<Long> chunkLines, Mode mode, ImportResponse result) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (mode == Mode.COPY) {
+                    postRepository.copyPosts(chunk);
+                } else {
+                    postRepository.saveAll(chunk);
+                }
+            });
+            result.addImported(chunk.size());
+        } catch (DataAccessException e) {
+            // Пачка откатилась целиком — сохраняем строки по одной, чтобы найти ошибочные
+            for (int i = 0; i < chunk.size(); i++) {
+                Post post = chunk.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> postRepository.saveAll(List.of(post)));
+                    result.addImported(1);
+                } catch (DataAccessException rowError) {
+                    result.addError(chunkLines.get(i), rowError.getMostSpecificCause().getMessage(), maxReportedErrors);
+                }
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+}
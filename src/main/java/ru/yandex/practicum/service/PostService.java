@@ -1,44 +1,121 @@
 package ru.yandex.practicum.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.dto.*;
 import ru.yandex.practicum.model.Comment;
 import ru.yandex.practicum.model.Post;
 import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.service.cache.LruCache;
+import ru.yandex.practicum.service.utils.CursorUtils;
+import ru.yandex.practicum.service.utils.StringUtils;
+import ru.yandex.practicum.service.utils.TransactionUtils;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class PostService {
 
     private final PostRepository postRepository;
+    // Кеш отдельных постов, сбрасывается при любом изменении поста или его комментариев
+    private final LruCache<Long, PostResponse> postCache;
+    // Кеш страниц ленты с коротким TTL, целиком сбрасывается при создании, изменении и удалении постов
+    private final LruCache<String, PostsPageResponse> feedCache;
+    // Отложенная запись лайков (используется, если включена blog.likes.write-behind.enabled)
+    private final LikeBuffer likeBuffer;
+    // Недавние изменения: их чтение идёт в основную базу, а не в реплику
+    private final RecentWrites recentWrites;
 
-    public PostService(PostRepository postRepository) {
+    public PostService(PostRepository postRepository,
+                       @Qualifier("postCache") LruCache<Long, PostResponse> postCache,
+                       @Qualifier("feedCache") LruCache<String, PostsPageResponse> feedCache,
+                       LikeBuffer likeBuffer,
+                       RecentWrites recentWrites) {
         this.postRepository = postRepository;
+        this.postCache = postCache;
+        this.feedCache = feedCache;
+        this.likeBuffer = likeBuffer;
+        this.recentWrites = recentWrites;
+        // Записанные отложенно лайки должны стать видны и в кешированных постах
+        likeBuffer.onFlush(ids -> ids.forEach(this::evictPost));
     }
 
     // 1. Получить ленту постов с поиском, пагинацией
+    @Transactional(readOnly = true)
     public PostsPageResponse getPosts(String search, int pageNumber, int pageSize) {
-        var page = postRepository.findPosts(search, pageNumber, pageSize);
+        return feedCache.get(feedKey("page", search, pageNumber, pageSize),
+                () -> truncateTexts(recentWrites.readFeed(
+                        () -> postRepository.findPosts(search, pageNumber, pageSize))));
+    }
+
+    // 1.1 Получить ленту постов после курсора (keyset-пагинация)
+    @Transactional(readOnly = true)
+    public PostsPageResponse getPostsAfter(String search, String after, int pageSize) {
+        long afterId = CursorUtils.decode(after);
+        return feedCache.get(feedKey("after", search, afterId, pageSize),
+                () -> truncateTexts(recentWrites.readFeed(
+                        () -> postRepository.findPostsAfter(search, afterId, pageSize))));
+    }
+
+    // 1.2 Получить ленту постов без подсчёта общего количества (только hasNext)
+    @Transactional(readOnly = true)
+    public PostsPageResponse getPostsWithoutTotal(String search, int pageNumber, int pageSize) {
+        return feedCache.get(feedKey("page-no-total", search, pageNumber, pageSize),
+                () -> truncateTexts(recentWrites.readFeed(
+                        () -> postRepository.findPostsWithoutTotal(search, pageNumber, pageSize))));
+    }
+
+    // 1.3 Получить ленту постов, упорядоченную по релевантности заголовка
+    @Transactional(readOnly = true)
+    public PostsPageResponse getPostsByRelevance(String search, int pageNumber, int pageSize, boolean withTotal) {
+        return feedCache.get(feedKey(withTotal ? "relevance" : "relevance-no-total", search, pageNumber, pageSize),
+                () -> truncateTexts(recentWrites.readFeed(
+                        () -> postRepository.findPostsByRelevance(search, pageNumber, pageSize, withTotal))));
+    }
+
+    // Ключ страницы ленты: режим, нормализованная строка поиска, позиция (номер страницы или курсор) и размер
+    private static String feedKey(String mode, String search, long position, int pageSize) {
+        return mode + ":" + StringUtils.normalizeSearch(search) + ":" + position + ":" + pageSize;
+    }
+
+    // В ленте показываем только начало текста (репозиторий уже отдаёт не больше превью и одного символа)
+    private PostsPageResponse truncateTexts(PostsPageResponse page) {
+        int previewLength = PostRepository.FEED_TEXT_PREVIEW_LENGTH;
         page.getPosts().forEach(p -> {
-            if (p.getText() != null && !p.getText().isEmpty() && p.getText().length() > 128) {
-                p.setText(p.getText().substring(0, 128) + "...");
+            if (p.getText() != null && !p.getText().isEmpty() && p.getText().length() > previewLength) {
+                p.setText(p.getText().substring(0, previewLength) + "...");
             }
         });
         return page;
     }
 
     // 2. Получить пост по ID
+    @Transactional(readOnly = true)
     public PostResponse getPost(Long id) {
+        PostResponse post = postCache.get(id, () -> recentWrites.readPosts(List.of(id), () -> loadPost(id)));
+        // Лайки, накопленные в памяти, добавляются к значению из базы (в кеше оно остаётся без них)
+        long pendingLikes = likeBuffer.pending(id);
+        if (post == null || pendingLikes == 0) {
+            return post;
+        }
+        return new PostResponse(post.getId(), post.getTitle(), post.getText(), post.getTags(),
+                (int) (post.getLikesCount() + pendingLikes), post.getCommentsCount());
+    }
+
+    private PostResponse loadPost(Long id) {
         Optional<Post> postOpt = postRepository.findById(id);
         if (postOpt.isEmpty()) {
             return null;
         }
 
         Post post = postOpt.get();
-        int commentsCount = postRepository.getCommentsCount(id);
 
         return new PostResponse(
                 post.getId(),
@@ -46,7 +123,7 @@ public class PostService {
                 post.getText(),
                 post.getTags(),
                 post.getLikesCount(),
-                commentsCount
+                post.getCommentsCount()
         );
     }
 
@@ -60,6 +137,7 @@ public class PostService {
         post.setLikesCount(0);
 
         Post savedPost = postRepository.save(post);
+        evictFeed();
         int commentsCount = 0;
 
         return new PostResponse(
@@ -86,31 +164,47 @@ public class PostService {
         post.setTags(request.getTags());
 
         postRepository.update(post);
+        evictPost(id);
+        evictFeed();
         return new PostResponse(
                 id,
                 request.getTitle(),
                 request.getText(),
                 request.getTags(),
                 post.getLikesCount(),
-                postRepository.getCommentsCount(id)
+                post.getCommentsCount()
         );
     }
 
     // 5. Удалить пост
     @Transactional
     public boolean deletePost(Long id) {
+        evictPost(id);
+        evictFeed();
+        likeBuffer.forget(id);
         return postRepository.deleteById(id);
     }
 
-    // 6. Увеличить количество лайков
-    @Transactional
-    public int incrementLikes(Long id) {
-        return postRepository.incrementLikes(id);
+    // 6. Увеличить количество лайков (null, если поста нет)
+    // Отложенный лайк кеш не сбрасывает: getPost добавляет незаписанные лайки к закешированному посту,
+    // а после записи в базу пост сбрасывает обработчик onFlush.
+    // Без буфера транзакции нет, поэтому кеш сбрасывается после записи: иначе чтение между сбросом
+    // и UPDATE вернуло бы в кеш старое количество лайков
+    public Integer incrementLikes(Long id) {
+        if (likeBuffer.isEnabled()) {
+            return likeBuffer.increment(id);
+        }
+        Integer likes = postRepository.incrementLikes(id).orElse(null);
+        evictPost(id);
+        return likes;
     }
 
     // 7. Получить список комментариев к посту
-    public List<CommentResponse> getComments(Long postId) {
-        List<Comment> comments = postRepository.findCommentsByPostId(postId);
+    // (не больше limit, начиная с комментариев с ID меньше before; before = null — с самого нового)
+    @Transactional(readOnly = true)
+    public List<CommentResponse> getComments(Long postId, Long before, int limit) {
+        List<Comment> comments = recentWrites.readPosts(List.of(postId),
+                () -> postRepository.findCommentsByPostId(postId, before, limit));
         return comments.stream()
                 .map(comment -> new CommentResponse(
                         comment.getId(),
@@ -120,9 +214,24 @@ public class PostService {
                 .collect(java.util.stream.Collectors.toList());
     }
 
+    // 7.1 Получить последние комментарии нескольких постов (ключ — ID поста в порядке запроса,
+    // для постов без комментариев — пустой список)
+    @Transactional(readOnly = true)
+    public Map<Long, List<CommentResponse>> getCommentsByPostIds(List<Long> postIds, int limitPerPost) {
+        Map<Long, List<CommentResponse>> result = new LinkedHashMap<>();
+        postIds.forEach(id -> result.put(id, new ArrayList<>()));
+        recentWrites.readPosts(result.keySet(),
+                        () -> postRepository.findCommentsByPostIds(result.keySet(), limitPerPost))
+                .forEach(comment -> result.get(comment.getPostId()).add(
+                        new CommentResponse(comment.getId(), comment.getText(), comment.getPostId())));
+        return result;
+    }
+
     // 8. Получить конкретный комментарий
+    @Transactional(readOnly = true)
     public CommentResponse getComment(Long postId, Long commentId) {
-        Optional<Comment> commentOpt = postRepository.findCommentById(commentId);
+        Optional<Comment> commentOpt = recentWrites.readPosts(List.of(postId),
+                () -> postRepository.findCommentById(commentId));
         if (commentOpt.isEmpty() || !commentOpt.get().getPostId().equals(postId)) {
             return null;
         }
@@ -143,9 +252,32 @@ public class PostService {
         comment.setText(request.getText());
 
         Long commentId = postRepository.insertComment(comment);
+        evictPost(postId);
         return new CommentResponse(commentId, request.getText(), postId);
     }
 
+    // 9.1 Добавить несколько комментариев (null, если хотя бы одного из постов нет).
+    // Посты проверяются одним запросом, комментарии вставляются одним пакетом
+    @Transactional
+    public List<CommentResponse> addComments(List<CommentBatchRequest> requests) {
+        Set<Long> postIds = requests.stream().map(CommentBatchRequest::getPostId).collect(Collectors.toSet());
+        if (postIds.contains(null) || !postRepository.findExistingIds(postIds).containsAll(postIds)) {
+            return null;
+        }
+
+        List<Comment> comments = requests.stream()
+                .map(request -> new Comment(null, request.getPostId(), request.getText()))
+                .toList();
+        List<Long> ids = postRepository.insertComments(comments);
+        postIds.forEach(this::evictPost);
+
+        List<CommentResponse> responses = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            responses.add(new CommentResponse(ids.get(i), comments.get(i).getText(), comments.get(i).getPostId()));
+        }
+        return responses;
+    }
+
     // 10. Обновить комментарий
     @Transactional
     public CommentResponse updateComment(Long postId, Long commentId, CommentRequest request) {
@@ -157,6 +289,7 @@ public class PostService {
         Comment comment = commentOpt.get();
         comment.setText(request.getText());
         postRepository.updateComment(comment);
+        evictPost(postId);
 
         return new CommentResponse(commentId, request.getText(), postId);
     }
@@ -168,7 +301,25 @@ public class PostService {
         if (commentOpt.isEmpty() || !commentOpt.get().getPostId().equals(postId)) {
             return false;
         }
+        evictPost(postId);
         return postRepository.deleteComment(commentId);
     }
 
+    // Сбрасываем пост из кеша сразу и ещё раз после коммита,
+    // чтобы параллельное чтение не вернуло в кеш незакоммиченное состояние.
+    // Отметка недавнего изменения регистрируется первой: действия после коммита выполняются
+    // по порядку, и чтение, промахнувшееся мимо сброшенного кеша, уже идёт в основную базу, а не на реплику
+    private void evictPost(Long id) {
+        recentWrites.postWritten(id);
+        postCache.invalidate(id);
+        TransactionUtils.afterCommit(() -> postCache.invalidate(id));
+    }
+
+    // Изменение набора постов затрагивает любые страницы ленты — сбрасываем их все
+    private void evictFeed() {
+        recentWrites.feedWritten();
+        feedCache.invalidateAll();
+        TransactionUtils.afterCommit(feedCache::invalidateAll);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.sql.ReadRouting;
+import ru.yandex.practicum.service.cache.LruCache;
+import ru.yandex.practicum.service.utils.TransactionUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Чтение собственных изменений при работе с репликами (read-your-writes).
+ * <p>
+ * Пост, изменённый на этом узле (сам пост, его лайки или комментарии), в течение
+ * blog.datasource.replicas.read-your-writes-window после коммита читается из основной базы:
+ * реплика могла ещё не получить изменение, а прочитанное с неё попало бы в кеш постов.
+ * Так же читается лента после создания, изменения или удаления постов.
+ * Без реплик изменения не отслеживаются и чтение не переключается.
+ */
+@Component
+public class RecentWrites {
+
+    private final boolean enabled;
+    private final long windowNanos;
+    // Недавно изменённые посты: запись живёт в кеше ровно окно чтения из основной базы
+    private final LruCache<Long, Boolean> posts;
+    // До этого момента (System.nanoTime) лента читается из основной базы
+    private volatile long feedPrimaryUntil = System.nanoTime();
+
+    public RecentWrites(@Value("${blog.datasource.replicas.urls:}") String replicaUrls,
+                        @Value("${blog.datasource.replicas.read-your-writes-window:2s}") Duration window,
+                        @Value("${blog.datasource.replicas.max-tracked-posts:100000}") int maxTrackedPosts) {
+        this.enabled = !replicaUrls.isBlank() && !window.isZero();
+        this.windowNanos = window.toNanos();
+        this.posts = new LruCache<>("recent-writes", enabled ? maxTrackedPosts : 0, window);
+    }
+
+    // 1. Отметить изменение поста (окно отсчитывается от коммита текущей транзакции)
+    public void postWritten(Long id) {
+        if (enabled) {
+            TransactionUtils.afterCommit(() -> posts.put(id, Boolean.TRUE));
+        }
+    }
+
+    // 2. Отметить изменение набора постов ленты
+    public void feedWritten() {
+        if (enabled) {
+            TransactionUtils.afterCommit(() -> feedPrimaryUntil = System.nanoTime() + windowNanos);
+        }
+    }
+
+    // 3. Прочитать данные постов: из основной базы, если хотя бы один из них недавно изменён
+    public <T> T readPosts(Collection<Long> ids, Supplier<T> read) {
+        if (enabled && ids.stream().anyMatch(id -> posts.get(id) != null)) {
+            return ReadRouting.onPrimary(read);
+        }
+        return read.get();
+    }
+
+    // 4. Прочитать ленту: из основной базы, если набор постов недавно изменён
+    public <T> T readFeed(Supplier<T> read) {
+        if (enabled && System.nanoTime() - feedPrimaryUntil < 0) {
+            return ReadRouting.onPrimary(read);
+        }
+        return read.get();
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.service;
+
+/**
+ * Не получено разрешение на загрузку изображения за blog.images.upload-wait:
+ * одновременно выполняется blog.images.max-concurrent-uploads загрузок.
+ */
+public class UploadLimitExceededException extends RuntimeException {
+
+    public UploadLimitExceededException(String message) {
+        super(message);
+    }
+
+    public UploadLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.service.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.List;
+
+/**
+ * Публикует статистику кешей приложения в Micrometer под стандартными именами
+ * cache.gets (result=hit|miss), cache.evictions и cache.size с тегом cache=имя кеша,
+ * а также долю попаданий cache.hit.ratio и суммарный вес записей cache.weight.
+ */
+public class CacheMetrics implements MeterBinder {
+
+    private final List<LruCache<?, ?>> caches;
+
+    public CacheMetrics(List<LruCache<?, ?>> caches) {
+        this.caches = caches;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (LruCache<?, ?> cache : caches) {
+            FunctionCounter.builder("cache.gets", cache, LruCache::hitCount)
+                    .tag("cache", cache.getName())
+                    .tag("result", "hit")
+                    .description("Количество попаданий в кеш")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", cache, LruCache::missCount)
+                    .tag("cache", cache.getName())
+                    .tag("result", "miss")
+                    .description("Количество промахов кеша")
+                    .register(registry);
+            FunctionCounter.builder("cache.evictions", cache, LruCache::evictionCount)
+                    .tag("cache", cache.getName())
+                    .description("Количество вытесненных и устаревших записей")
+                    .register(registry);
+            Gauge.builder("cache.size", cache, LruCache::size)
+                    .tag("cache", cache.getName())
+                    .description("Текущее количество записей в кеше")
+                    .register(registry);
+            Gauge.builder("cache.weight", cache, LruCache::weight)
+                    .tag("cache", cache.getName())
+                    .description("Суммарный вес записей (для кеша изображений — байты)")
+                    .register(registry);
+            Gauge.builder("cache.hit.ratio", cache, LruCache::hitRatio)
+                    .tag("cache", cache.getName())
+                    .description("Доля попаданий в кеш")
+                    .register(registry);
+        }
+    }
+}
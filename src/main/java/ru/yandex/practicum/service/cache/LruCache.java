@@ -0,0 +1,190 @@
+package ru.yandex.practicum.service.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ограниченный по размеру LRU-кеш с временем жизни записей.
+ * Размер считается в записях или, если задан вес записи, в суммарном весе (например, в байтах).
+ * Все операции синхронизированы: кеш рассчитан на небольшое число записей
+ * и короткие критические секции. Ведёт счётчики попаданий, промахов и вытеснений
+ * (см. {@link CacheMetrics}).
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public class LruCache<K, V> {
+
+    private final String name;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    // Увеличивается при очистке всего кеша: значение, загруженное до очистки, в кеш не попадёт
+    private long generation;
+    // Загрузки, выполняющиеся сейчас, по ключам: сброс ключа отменяет только его загрузки
+    private final HashMap<K, Load> loads = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LruCache(String name, int maxSize, Duration ttl) {
+        this(name, maxSize, ttl, value -> 1);
+    }
+
+    /**
+     * @param maxWeight предельный суммарный вес записей
+     * @param weigher   вес записи (запись тяжелее maxWeight не кешируется)
+     */
+    public LruCache(String name, long maxWeight, Duration ttl, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    // 1. Получить значение (null, если его нет или оно устарело)
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            removeEntry(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    // 2. Получить значение или загрузить его (загрузка выполняется вне блокировки)
+    public V get(K key, Supplier<V> loader) {
+        long loadGeneration;
+        Load load;
+        long loadVersion;
+        synchronized (this) {
+            V cached = get(key);
+            if (cached != null) {
+                return cached;
+            }
+            loadGeneration = generation;
+            load = loads.computeIfAbsent(key, k -> new Load());
+            load.running++;
+            loadVersion = load.version;
+        }
+        V value = null;
+        try {
+            value = loader.get();
+        } finally {
+            synchronized (this) {
+                if (--load.running == 0) {
+                    loads.remove(key);
+                }
+                if (value != null && loadGeneration == generation && loadVersion == load.version) {
+                    putEntry(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    // 3. Положить значение
+    public synchronized void put(K key, V value) {
+        putEntry(key, value);
+    }
+
+    // 4. Удалить значение по ключу
+    public synchronized void invalidate(K key) {
+        Load load = loads.get(key);
+        if (load != null) {
+            load.version++;
+        }
+        removeEntry(key);
+    }
+
+    // 5. Очистить кеш
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Суммарный вес записей (для кеша без весов совпадает с size)
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    // Доля попаданий среди всех обращений (0, пока обращений не было)
+    public double hitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private void putEntry(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxWeight) {
+            return;
+        }
+        removeEntry(key);
+        entries.put(key, new Entry<>(value, weight, System.nanoTime() + ttlNanos));
+        totalWeight += weight;
+
+        // Вытесняем самые давно использованные записи, пока не уложимся в предел
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (totalWeight > maxWeight) {
+            totalWeight -= eldest.next().weight();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void removeEntry(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight();
+        }
+    }
+
+    // Загрузки одного ключа: version увеличивается при сбросе ключа
+    private static class Load {
+        private int running;
+        private long version;
+    }
+
+    private record Entry<V>(V value, long weight, long expiresAt) {
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.service.storage;
+
+import org.springframework.core.io.ByteArrayResource;
+
+/**
+ * Содержимое изображения в памяти вместе с метаданными исходного файла,
+ * чтобы ETag и Last-Modified совпадали с ответом, отданным из хранилища.
+ */
+public class CachedImageResource extends ByteArrayResource {
+
+    private final String key;
+    private final long lastModified;
+
+    public CachedImageResource(String key, byte[] content, long lastModified) {
+        super(content, "Кешированное изображение " + key);
+        this.key = key;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String getFilename() {
+        return key;
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.service.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import ru.yandex.practicum.model.ImageSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Публикует в Micrometer объём отданных изображений: счётчик blog.images.served (байты)
+ * с тегом size=original|thumb|medium. Считаются байты, фактически прочитанные при записи ответа,
+ * поэтому ответы 304 не учитываются, а для запросов с Range учитывается только отданный диапазон.
+ */
+public class ImageMetrics implements MeterBinder {
+
+    private final Map<ImageSize, LongAdder> servedBytes = new EnumMap<>(ImageSize.class);
+
+    public ImageMetrics() {
+        for (ImageSize size : ImageSize.values()) {
+            servedBytes.put(size, new LongAdder());
+        }
+    }
+
+    /**
+     * Оборачивает изображение так, что прочитанные из него байты попадают в счётчик.
+     * Метаданные (размер, дата изменения, имя) берутся из исходного ресурса.
+     */
+    public Resource counting(Resource image, ImageSize size) {
+        return new CountingResource(image, servedBytes.get(size));
+    }
+
+    public long servedBytes(ImageSize size) {
+        return servedBytes.get(size).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (ImageSize size : ImageSize.values()) {
+            FunctionCounter.builder("blog.images.served", servedBytes.get(size), LongAdder::sum)
+                    .tag("size", size.name().toLowerCase())
+                    .baseUnit("bytes")
+                    .description("Объём отданных изображений")
+                    .register(registry);
+        }
+    }
+
+    private static class CountingResource extends AbstractResource {
+
+        private final Resource delegate;
+        private final LongAdder counter;
+
+        CountingResource(Resource delegate, LongAdder counter) {
+            this.delegate = delegate;
+            this.counter = counter;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(delegate.getInputStream()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        counter.increment();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        counter.add(read);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public boolean exists() {
+            return delegate.exists();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return delegate.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return delegate.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return delegate.getDescription();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.service.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Хранилище файлов изображений.
+ * Ключ — имя файла варианта изображения (например, 1.jpg или 1-thumb.jpg).
+ * Реализация выбирается свойством blog.images.storage.type (local или s3).
+ */
+public interface ImageStorage {
+
+    /**
+     * Сохраняет файл под ключом. Читатели видят либо прежнее содержимое, либо новое целиком.
+     * Исходный файл может быть перемещён; если он остался, удаляет его вызывающий.
+     */
+    void store(String key, Path source) throws IOException;
+
+    /**
+     * Возвращает файл для потокового чтения (null, если его нет).
+     */
+    Resource load(String key) throws IOException;
+
+    /**
+     * Удаляет файл, если он есть.
+     */
+    void delete(String key) throws IOException;
+}
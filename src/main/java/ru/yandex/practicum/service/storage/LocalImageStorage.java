@@ -0,0 +1,93 @@
+package ru.yandex.practicum.service.storage;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Хранилище изображений на локальном диске.
+ * Файлы раскладываются по двум уровням подкаталогов по хешу ключа (root/ab/cd/1.jpg),
+ * чтобы в одном каталоге не оказывалось сотен тысяч файлов.
+ * Файлы, сохранённые до разбиения на подкаталоги (root/1.jpg), по-прежнему читаются.
+ */
+public class LocalImageStorage implements ImageStorage {
+
+    private final Path root;
+
+    public LocalImageStorage(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void store(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        // Сначала переносим во временный файл рядом с целевым, затем атомарно переименовываем
+        Path tempFile = Files.createTempFile(target.getParent(), key + "-", ".tmp");
+        try {
+            Files.move(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        Files.deleteIfExists(legacyPath(key));
+    }
+
+    @Override
+    public Resource load(String key) {
+        Path path = resolve(key);
+        if (Files.isRegularFile(path)) {
+            return new FileSystemResource(path);
+        }
+        Path legacy = legacyPath(key);
+        if (Files.isRegularFile(legacy)) {
+            return new FileSystemResource(legacy);
+        }
+        return null;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+        Files.deleteIfExists(legacyPath(key));
+    }
+
+    // Путь файла: root/<2 hex>/<2 hex>/key
+    Path resolve(String key) {
+        String hash = HexFormat.of().formatHex(md5(validate(key)));
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(key);
+    }
+
+    // Путь в старой плоской раскладке
+    private Path legacyPath(String key) {
+        return root.resolve(validate(key));
+    }
+
+    private static String validate(String key) {
+        if (key.isEmpty() || key.contains("/") || key.contains("\\") || key.startsWith(".")) {
+            throw new IllegalArgumentException("Недопустимый ключ изображения: " + key);
+        }
+        return key;
+    }
+
+    private static byte[] md5(String key) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.service.storage;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Хранилище изображений в S3-совместимом объектном хранилище (AWS S3, MinIO и т. п.).
+ * Запись объекта в S3 атомарна: читатель получает либо прежнюю версию, либо новую целиком.
+ */
+public class S3ImageStorage implements ImageStorage {
+
+    private final S3Client client;
+    private final String bucket;
+
+    public S3ImageStorage(S3Client client, String bucket) {
+        this.client = client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public void store(String key, Path source) {
+        client.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType("image/jpeg")
+                        .build(),
+                RequestBody.fromFile(source));
+    }
+
+    @Override
+    public Resource load(String key) {
+        try {
+            HeadObjectResponse head = client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .build());
+            return new S3ObjectResource(key, head.contentLength(), head.lastModified().toEpochMilli());
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            // HEAD не возвращает тело ошибки, поэтому отсутствие объекта приходит как 404 без кода
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build());
+    }
+
+    // Объект S3: метаданные получены при load, содержимое читается потоком при записи ответа
+    private class S3ObjectResource extends AbstractResource {
+        private final String key;
+        private final long contentLength;
+        private final long lastModified;
+
+        S3ObjectResource(String key, long contentLength, long lastModified) {
+            this.key = key;
+            this.contentLength = contentLength;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return client.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .build());
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public String getFilename() {
+            return key;
+        }
+
+        @Override
+        public String getDescription() {
+            return "s3://" + bucket + "/" + key;
+        }
+    }
+}
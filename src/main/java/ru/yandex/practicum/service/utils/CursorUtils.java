@@ -0,0 +1,39 @@
+package ru.yandex.practicum.service.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class CursorUtils {
+    private static final String PREFIX = "id:";
+
+    /**
+     * Кодирует идентификатор последнего поста страницы в непрозрачный курсор.
+     *
+     * @param id идентификатор последней возвращённой записи
+     * @return курсор в формате Base64 (URL-safe, без паддинга)
+     */
+    public static String encode(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Восстанавливает идентификатор из курсора.
+     *
+     * @param cursor курсор, полученный от {@link #encode(long)}
+     * @return идентификатор, после которого нужно продолжить выборку
+     * @throws IllegalArgumentException если курсор повреждён
+     */
+    public static long decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException тоже является IllegalArgumentException
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor, e);
+        }
+    }
+}
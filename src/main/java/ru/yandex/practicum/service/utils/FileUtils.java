@@ -1,15 +1,28 @@
 package ru.yandex.practicum.service.utils;
 
 public class FileUtils {
-    public static String getFileExtension(String filename) {
-        int dotIndex = filename.lastIndexOf('.');
-        if (dotIndex == -1 || dotIndex == 0 || dotIndex == filename.length() - 1) {
-            return "";
-        }
-        return filename.substring(dotIndex + 1).toLowerCase();
+    // Сигнатура JPEG: SOI-маркер FF D8 и начало следующего маркера FF
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    public static int magicLength() {
+        return JPEG_MAGIC.length;
     }
 
-    public static boolean isAllowedExtension(String extension) {
-        return extension.equals("jpg");
+    /**
+     * Проверяет по первым байтам содержимого, что это JPEG (расширение имени файла не учитывается).
+     *
+     * @param header первые байты файла
+     * @param length сколько байт прочитано
+     */
+    public static boolean isJpeg(byte[] header, int length) {
+        if (length < JPEG_MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < JPEG_MAGIC.length; i++) {
+            if (header[i] != JPEG_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.service.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+public class ImageUtils {
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Читает JPEG-изображение. Размеры сначала берутся из заголовка: декодированное изображение
+     * занимает около 4 байт на пиксель независимо от размера файла.
+     *
+     * @param maxPixels предельное количество пикселей (ширина × высота)
+     * @throws IOException              если файл не удалось прочитать или это не изображение
+     * @throws IllegalArgumentException если изображение больше maxPixels
+     */
+    public static BufferedImage read(InputStream source, long maxPixels) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            ImageReader reader = reader(in);
+            try {
+                checkPixels(reader.getWidth(0), reader.getHeight(0), maxPixels);
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Размеры изображения по заголовку файла, без декодирования.
+     *
+     * @throws IOException если заголовок не удалось прочитать
+     */
+    public static Dimension readSize(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            ImageReader reader = reader(in);
+            try {
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что изображение не больше maxPixels пикселей.
+     *
+     * @throws IllegalArgumentException если изображение больше
+     */
+    public static void checkPixels(int width, int height, long maxPixels) {
+        if ((long) width * height > maxPixels) {
+            throw new IllegalArgumentException("Изображение " + width + "x" + height
+                    + " больше " + maxPixels + " пикселей");
+        }
+    }
+
+    private static ImageReader reader(ImageInputStream in) throws IOException {
+        Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+        if (readers == null || !readers.hasNext()) {
+            throw new IOException("Не удалось прочитать изображение");
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(in, true, true);
+        return reader;
+    }
+
+    /**
+     * Уменьшает изображение до заданной ширины с сохранением пропорций (не увеличивает).
+     */
+    public static BufferedImage scaleToWidth(BufferedImage image, int maxWidth) {
+        int width = Math.min(maxWidth, image.getWidth());
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Записывает изображение в JPEG.
+     */
+    public static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
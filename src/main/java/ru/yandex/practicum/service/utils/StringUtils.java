@@ -1,8 +1,11 @@
 package ru.yandex.practicum.service.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeSet;
 
 public class StringUtils {
     /**
@@ -33,8 +36,37 @@ public class StringUtils {
         }
 
         return Map.of(
-                "tags", String.join("'",hashList),
-                "titles", String.join("",othersList)
+                "tags", String.join(",",hashList),
+                "titles", String.join(" ",othersList)
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Приводит строку поиска к ключу для кеширования:
+     * разные записи одного и того же запроса дают одинаковый ключ.
+     *
+     * @param input входная строка
+     * @return нормализованный ключ вида "заголовки|теги"
+     */
+    public static String normalizeSearch(String input) {
+        Map<String, String> result = splitByHash(input);
+        // ILIKE не чувствителен к регистру, поэтому заголовки приводим к нижнему регистру,
+        // а для фильтра по тегам не важны порядок и повторы
+        String tags = result.get("tags").isEmpty() ? "" : String.join(",",
+                new TreeSet<>(Arrays.asList(result.get("tags").split(","))));
+        return result.get("titles").toLowerCase(Locale.ROOT) + "|" + tags;
+    }
+
+    /**
+     * Экранирует спецсимволы шаблона LIKE/ILIKE (\, % и _),
+     * чтобы строка поиска сравнивалась как обычный текст.
+     *
+     * @param value строка поиска
+     * @return экранированная строка
+     */
+    public static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.service.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtils {
+    /**
+     * Выполняет действие после успешного коммита текущей транзакции.
+     * Если транзакции нет, действие выполняется сразу.
+     *
+     * @param action действие (например, сброс кеша)
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -3,8 +3,11 @@ CREATE TABLE IF NOT EXISTS posts (
     title VARCHAR(255) NOT NULL,                   -- Заголовок (обязательный)
     text TEXT NOT NULL,                           -- Текст поста (обязательный)
     tags TEXT[] DEFAULT '{}',                     -- Массив тегов (по умолчанию пустой)
-    likes_count INTEGER DEFAULT 0               -- Количество лайков (по умолчанию 0)
+    likes_count INTEGER DEFAULT 0,              -- Количество лайков (по умолчанию 0)
+    comments_count INTEGER NOT NULL DEFAULT 0   -- Количество комментариев (поддерживается при вставке/удалении)
  );
+-- Для уже существующих баз: после добавления колонки запустить сверку (blog.comments-count.reconcile-on-startup)
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS comments_count INTEGER NOT NULL DEFAULT 0;
 CREATE TABLE IF NOT EXISTS comments (
     id BIGSERIAL PRIMARY KEY,                    -- Уникальный ID комментария
     post_id BIGINT NOT NULL,                  -- Внешний ключ на пост
@@ -16,6 +19,14 @@ CREATE TABLE IF NOT EXISTS comments (
         ON DELETE CASCADE
         ON UPDATE CASCADE
 );
-CREATE INDEX IF NOT EXISTS idx_posts_title ON posts (title);
-CREATE INDEX IF NOT EXISTS idx_posts_tags ON posts (tags);
-CREATE INDEX IF NOT EXISTS idx_comments_post_id ON comments (post_id);
+-- Поиск по подстроке заголовка (ILIKE '%...%') обслуживает триграммный GIN-индекс
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+DROP INDEX IF EXISTS idx_posts_title;
+CREATE INDEX IF NOT EXISTS idx_posts_title_trgm ON posts USING GIN (title gin_trgm_ops);
+-- Фильтр по тегам (tags @> ARRAY[...]) обслуживает GIN-индекс, b-tree для массива не подходит
+DROP INDEX IF EXISTS idx_posts_tags;
+CREATE INDEX IF NOT EXISTS idx_posts_tags_gin ON posts USING GIN (tags);
+-- Страницы комментариев поста (post_id = ? AND id < ? ORDER BY id DESC LIMIT ?) читаются по составному индексу,
+-- он же заменяет индекс только по post_id
+DROP INDEX IF EXISTS idx_comments_post_id;
+CREATE INDEX IF NOT EXISTS idx_comments_post_id_id ON comments (post_id, id);
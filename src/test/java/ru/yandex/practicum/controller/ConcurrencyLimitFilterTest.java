@@ -0,0 +1,67 @@
+package ru.yandex.practicum.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofMillis(50));
+
+    // 1. Тест отклонения запроса сверх лимита и освобождения разрешения после ответа
+    @Test
+    void testOverLimit_ReturnsServiceUnavailable() throws Exception {
+
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServlet slowServlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                inside.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<MockHttpServletResponse> slow = executor.submit(() -> perform("/api/posts", slowServlet));
+        inside.await(5, TimeUnit.SECONDS);
+
+        MockHttpServletResponse rejected = perform("/api/posts", null);
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        // Метрики и health доступны и под нагрузкой
+        assertEquals(200, perform("/actuator/health", null).getStatus());
+        // Изображения не занимают соединения с базой и не ограничиваются
+        assertEquals(200, perform("/api/posts/1/image", null).getStatus());
+
+        release.countDown();
+        assertEquals(200, slow.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(200, perform("/api/posts", null).getStatus());
+        executor.shutdown();
+    }
+
+    private MockHttpServletResponse perform(String uri, HttpServlet servlet) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = servlet != null ? new MockFilterChain(servlet) : new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,180 @@
+package ru.yandex.practicum.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.multipart.MultipartFile;
+import ru.yandex.practicum.model.ImageSize;
+import ru.yandex.practicum.service.FileService;
+import ru.yandex.practicum.service.UploadLimitExceededException;
+import ru.yandex.practicum.service.storage.ImageMetrics;
+
+import jakarta.servlet.ServletException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(FileController.class)
+@Import(ImageMetrics.class)
+class FileControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ImageMetrics imageMetrics;
+
+    @MockitoBean
+    private FileService fileService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path image = tempDir.resolve("1.jpg");
+        Files.write(image, "0123456789".getBytes());
+        when(fileService.getImage(1L, ImageSize.ORIGINAL)).thenReturn(new FileSystemResource(image));
+    }
+
+    // 1. Тест получения изображения с заголовками кеширования
+    @Test
+    void testGetImage_ReturnsContentWithValidators() throws Exception {
+
+        long servedBefore = imageMetrics.servedBytes(ImageSize.ORIGINAL);
+
+        mockMvc.perform(get("/api/posts/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().bytes("0123456789".getBytes()))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate"));
+        assertEquals(servedBefore + 10, imageMetrics.servedBytes(ImageSize.ORIGINAL));
+    }
+
+    // 2. Тест условного запроса: браузер уже имеет актуальную копию
+    @Test
+    void testGetImage_IfNoneMatch_ReturnsNotModified() throws Exception {
+
+        String etag = mockMvc.perform(get("/api/posts/1/image"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        long servedBefore = imageMetrics.servedBytes(ImageSize.ORIGINAL);
+        mockMvc.perform(get("/api/posts/1/image").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        // Тело не отдавалось — счётчик отданных байтов не меняется
+        assertEquals(servedBefore, imageMetrics.servedBytes(ImageSize.ORIGINAL));
+    }
+
+    // 3. Тест запроса части файла
+    @Test
+    void testGetImage_Range_ReturnsPartialContent() throws Exception {
+
+        long servedBefore = imageMetrics.servedBytes(ImageSize.ORIGINAL);
+
+        mockMvc.perform(get("/api/posts/1/image").header(HttpHeaders.RANGE, "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/10"))
+                .andExpect(content().bytes("234".getBytes()));
+        assertEquals(servedBefore + 3, imageMetrics.servedBytes(ImageSize.ORIGINAL));
+    }
+
+    // 4. Тест получения уменьшенной копии
+    @Test
+    void testGetImage_Thumb() throws Exception {
+
+        Path thumb = tempDir.resolve("1-thumb.jpg");
+        Files.write(thumb, "thumb".getBytes());
+        when(fileService.getImage(1L, ImageSize.THUMB)).thenReturn(new FileSystemResource(thumb));
+
+        mockMvc.perform(get("/api/posts/1/image").param("size", "thumb"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("thumb".getBytes()));
+    }
+
+    // 5. Тест неизвестного размера
+    @Test
+    void testGetImage_UnknownSize_ReturnsBadRequest() throws Exception {
+
+        mockMvc.perform(get("/api/posts/1/image").param("size", "huge"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // 6. Тест получения отсутствующего изображения
+    @Test
+    void testGetImage_NotFound() throws Exception {
+
+        mockMvc.perform(get("/api/posts/2/image"))
+                .andExpect(status().isNotFound());
+    }
+
+    // 7. Тест загрузки изображения: файл передаётся сервису через Supplier и читается им самим
+    @Test
+    void testUpdateImage_PassesUploadToService() throws Exception {
+
+        byte[] content = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1};
+        when(fileService.updateImage(eq(1L), ArgumentMatchers.<Supplier<MultipartFile>>any())).thenAnswer(invocation -> {
+            Supplier<MultipartFile> upload = invocation.getArgument(1);
+            assertEquals(content.length, upload.get().getSize());
+            return "1.jpg";
+        });
+
+        mockMvc.perform(multipart("/api/posts/1/image")
+                        .file(new MockMultipartFile("image", "a.jpg", "image/jpeg", content))
+                        .with(request -> {
+                            request.setMethod("PUT");
+                            return request;
+                        }))
+                .andExpect(status().isOk());
+    }
+
+    // 8. Тест загрузки при исчерпанном лимите одновременных загрузок
+    @Test
+    void testUpdateImage_TooManyUploads() throws Exception {
+
+        when(fileService.updateImage(eq(1L), ArgumentMatchers.<Supplier<MultipartFile>>any()))
+                .thenThrow(new UploadLimitExceededException("busy"));
+
+        mockMvc.perform(multipart("/api/posts/1/image")
+                        .file(new MockMultipartFile("image", "a.jpg", "image/jpeg", new byte[]{1}))
+                        .with(request -> {
+                            request.setMethod("PUT");
+                            return request;
+                        }))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    // 9. Тест прочих ошибок при загрузке: не превращаются в 503
+    @Test
+    void testUpdateImage_OtherStateError_IsNotServiceUnavailable() {
+
+        when(fileService.updateImage(eq(1L), ArgumentMatchers.<Supplier<MultipartFile>>any()))
+                .thenThrow(new IllegalStateException("storage"));
+
+        assertThrows(ServletException.class, () -> mockMvc.perform(multipart("/api/posts/1/image")
+                .file(new MockMultipartFile("image", "a.jpg", "image/jpeg", new byte[]{1}))
+                .with(request -> {
+                    request.setMethod("PUT");
+                    return request;
+                })));
+    }
+}
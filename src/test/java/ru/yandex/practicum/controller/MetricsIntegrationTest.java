@@ -0,0 +1,67 @@
+package ru.yandex.practicum.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый application.yaml заменяет основной, поэтому настройки метрик из него повторяем здесь
+@SpringBootTest(properties = {
+        "management.endpoints.web.exposure.include=prometheus",
+        "management.observations.annotations.enabled=true",
+        "management.metrics.distribution.percentiles-histogram.http.server.requests=true"
+})
+@AutoConfigureMockMvc
+@Testcontainers
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Container
+    static PostgreSQLContainer<?> postgres;
+
+    static {
+        String image = System.getProperty("test.container.image", "postgres:18");
+        postgres = new PostgreSQLContainer<>(image);
+        postgres.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    // 1. Тест формата Prometheus: эндпоинты, запросы репозитория, пул соединений, кеши и изображения
+    @Test
+    void testPrometheusScrape_ContainsApplicationMetrics() throws Exception {
+
+        mockMvc.perform(get("/api/posts/{id}", 999_999L))
+                .andExpect(status().isNotFound());
+
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+
+        assertThat(scrape)
+                .containsPattern("http_server_requests_seconds_bucket\\{.*uri=\"/api/posts/\\{id\\}\"")
+                .containsPattern("blog_repository_seconds_bucket\\{.*method=\"findById\"")
+                .contains("hikaricp_connections_active")
+                .containsPattern("cache_gets_total\\{.*cache=\"posts\"")
+                .containsPattern("blog_images_served_bytes_total\\{.*size=\"thumb\"");
+    }
+}
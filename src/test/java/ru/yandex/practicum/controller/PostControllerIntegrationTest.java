@@ -4,7 +4,10 @@ import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.dto.*;
@@ -14,9 +17,14 @@ import tools.jackson.databind.ObjectMapper;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import jakarta.servlet.ServletException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -38,17 +46,97 @@ class PostControllerIntegrationTest {
     void testGetPosts() throws Exception {
 
         PostsPageResponse response = new PostsPageResponse();
-        when(postService.getPosts("test", 0, 10)).thenReturn(response);
+        when(postService.getPosts("test", 1, 10)).thenReturn(response);
 
         mockMvc.perform(get("/api/posts")
                         .param("search", "test")
-                        .param("pageNumber", "0")
+                        .param("pageNumber", "1")
                         .param("pageSize", "10"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
         ;
     }
 
+    // 1.1 Тест получения ленты постов по курсору
+    @Test
+    void testGetPosts_WithCursor() throws Exception {
+
+        PostsPageResponse response = new PostsPageResponse(List.of(), true, false, 0, null);
+        when(postService.getPostsAfter("", "aWQ6MTA", 10)).thenReturn(response);
+
+        mockMvc.perform(get("/api/posts")
+                        .param("search", "")
+                        .param("pageSize", "10")
+                        .param("after", "aWQ6MTA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasPrev").value(true));
+
+        verify(postService, never()).getPosts(anyString(), anyInt(), anyInt());
+    }
+
+    // 1.2 Тест получения ленты постов по повреждённому курсору
+    @Test
+    void testGetPosts_WithBrokenCursor() throws Exception {
+
+        when(postService.getPostsAfter("", "broken", 10)).thenThrow(new IllegalArgumentException());
+
+        mockMvc.perform(get("/api/posts")
+                        .param("search", "")
+                        .param("pageSize", "10")
+                        .param("after", "broken"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // 1.3 Тест получения ленты постов без общего количества
+    @Test
+    void testGetPosts_WithoutTotal() throws Exception {
+
+        PostsPageResponse response = new PostsPageResponse(List.of(), false, true, 0);
+        when(postService.getPostsWithoutTotal("", 1, 10)).thenReturn(response);
+
+        mockMvc.perform(get("/api/posts")
+                        .param("search", "")
+                        .param("pageNumber", "1")
+                        .param("pageSize", "10")
+                        .param("withTotal", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(true));
+
+        verify(postService, never()).getPosts(anyString(), anyInt(), anyInt());
+    }
+
+    // 1.4 Тест получения ленты постов со слишком большим или нулевым размером страницы
+    @Test
+    void testGetPosts_PageSizeOutOfRange() throws Exception {
+
+        mockMvc.perform(get("/api/posts")
+                        .param("search", "")
+                        .param("pageSize", "100000"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/posts")
+                        .param("search", "")
+                        .param("pageSize", "0"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(postService);
+    }
+
+    // 1.5 Тест получения ленты постов с номером страницы меньше 1
+    @Test
+    void testGetPosts_PageNumberOutOfRange() throws Exception {
+
+        mockMvc.perform(get("/api/posts")
+                        .param("search", "")
+                        .param("pageNumber", "0")
+                        .param("pageSize", "10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/posts")
+                        .param("search", "")
+                        .param("pageNumber", "-1")
+                        .param("pageSize", "10"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(postService);
+    }
+
     // 2. Тест получения поста по ID (успешный случай)
     @Test
     void testGetPost_Success() throws Exception {
@@ -134,6 +222,33 @@ class PostControllerIntegrationTest {
                 .andExpect(status().isOk());
     }
 
+    // 7.1 Тест пакетного получения комментариев
+    @Test
+    void testGetCommentsBatch() throws Exception {
+
+        Map<Long, List<CommentResponse>> response = new LinkedHashMap<>();
+        response.put(1L, List.of(new CommentResponse(10L, "Comment", 1L)));
+        response.put(2L, List.of());
+        when(postService.getCommentsByPostIds(List.of(1L, 2L), 3)).thenReturn(response);
+
+        mockMvc.perform(get("/api/posts/comments")
+                        .param("ids", "1,2")
+                        .param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.1[0].text").value("Comment"))
+                .andExpect(jsonPath("$.2").isEmpty());
+    }
+
+    // 7.2 Тест пакетного получения комментариев со слишком большим лимитом
+    @Test
+    void testGetCommentsBatch_LimitTooLarge() throws Exception {
+
+        mockMvc.perform(get("/api/posts/comments")
+                        .param("ids", "1")
+                        .param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
     // 8. Тест удаления поста (пост не найден)
     @Test
     void testDeletePost_NotFound() throws Exception {
@@ -157,11 +272,11 @@ class PostControllerIntegrationTest {
                 .andExpect(content().string("5"));
     }
 
-    // 10. Тест увеличения лайков (пост не найден — исключение)
+    // 10. Тест увеличения лайков (пост не найден)
     @Test
     void testIncrementLikes_NotFound() throws Exception {
 
-        doThrow(new RuntimeException()).when(postService).incrementLikes(999L);
+        when(postService.incrementLikes(999L)).thenReturn(null);
 
 
         mockMvc.perform(post("/api/posts/999/likes"))
@@ -178,11 +293,12 @@ class PostControllerIntegrationTest {
         CommentResponse comment2 = new CommentResponse(2L, "Second Comment", postId);
 
         List<CommentResponse> comments = Arrays.asList(comment1, comment2);
-        when(postService.getComments(postId)).thenReturn(comments);
+        when(postService.getComments(postId, null, 501)).thenReturn(comments);
 
 
         mockMvc.perform(get("/api/posts/{id}/comments", postId))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Before"))
                 .andExpect(jsonPath("$[0].id").value(1))
                 .andExpect(jsonPath("$[0].text").value("First Comment"))
                 .andExpect(jsonPath("$[1].id").value(2))
@@ -190,6 +306,37 @@ class PostControllerIntegrationTest {
     }
 
 
+    // 11.1 Тест получения страницы комментариев по курсору
+    @Test
+    void testGetComments_WithLimitAndBefore() throws Exception {
+
+        when(postService.getComments(99L, 50L, 3)).thenReturn(List.of(new CommentResponse(49L, "Older", 99L)));
+
+        mockMvc.perform(get("/api/posts/{id}/comments", 99L)
+                        .param("before", "50")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(49))
+                .andExpect(header().doesNotExist("X-Next-Before"));
+    }
+
+    // 11.2 Тест получения неполной выдачи комментариев: курсор следующей страницы в заголовке
+    @Test
+    void testGetComments_MoreThanLimit_ReturnsNextBeforeHeader() throws Exception {
+
+        when(postService.getComments(99L, null, 3)).thenReturn(List.of(
+                new CommentResponse(30L, "Third", 99L),
+                new CommentResponse(20L, "Second", 99L),
+                new CommentResponse(10L, "First", 99L)));
+
+        mockMvc.perform(get("/api/posts/{id}/comments", 99L)
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(20))
+                .andExpect(header().string("X-Next-Before", "20"));
+    }
+
     // 12. Тест получения конкретного комментария (успешный случай) — продолжение
     @Test
     void testGetComment_Success() throws Exception {
@@ -259,6 +406,43 @@ class PostControllerIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    // 15.1 Тест пакетного добавления комментариев
+    @Test
+    void testCreateCommentsBatch() throws Exception {
+
+        List<CommentBatchRequest> request = List.of(
+                new CommentBatchRequest(1L, "first"),
+                new CommentBatchRequest(2L, "second"));
+        when(postService.addComments(anyList())).thenReturn(List.of(
+                new CommentResponse(10L, "first", 1L),
+                new CommentResponse(11L, "second", 2L)));
+
+
+        mockMvc.perform(post("/api/posts/comments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].id").value(10))
+                .andExpect(jsonPath("$[1].postId").value(2));
+    }
+
+    // 15.2 Тест пакетного добавления комментариев (пост не найден и пустой пакет)
+    @Test
+    void testCreateCommentsBatch_PostNotFoundOrEmpty() throws Exception {
+
+        when(postService.addComments(anyList())).thenReturn(null);
+
+
+        mockMvc.perform(post("/api/posts/comments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"postId\":999,\"text\":\"x\"}]"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/posts/comments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     // 16. Тест обновления комментария (успешный случай)
     @Test
     void testUpdateComment_Success() throws Exception {
@@ -326,4 +510,25 @@ class PostControllerIntegrationTest {
         mockMvc.perform(delete("/api/posts/{postId}/comments/{commentId}", postId, commentId))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    // 20. Тест нехватки соединений в пуле: 503 с Retry-After вместо 500
+    @Test
+    void testGetPost_ConnectionPoolTimeout_ReturnsServiceUnavailable() throws Exception {
+
+        when(postService.getPost(1L)).thenThrow(new CannotGetJdbcConnectionException("Failed to obtain JDBC Connection",
+                new SQLTransientConnectionException("blog - Connection is not available, request timed out")));
+
+        mockMvc.perform(get("/api/posts/{id}", 1L))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    // 21. Тест прочих ошибок базы: не превращаются в 503
+    @Test
+    void testGetPost_OtherDataAccessError_IsNotServiceUnavailable() {
+
+        when(postService.getPost(1L)).thenThrow(new DataIntegrityViolationException("constraint"));
+
+        assertThrows(ServletException.class, () -> mockMvc.perform(get("/api/posts/{id}", 1L)));
+    }
+}
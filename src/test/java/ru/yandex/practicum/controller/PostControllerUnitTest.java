@@ -31,14 +31,14 @@ class PostControllerUnitTest {
     void testGetPosts() {
 
         String search = "test";
-        int pageNumber = 0;
+        int pageNumber = 1;
         int pageSize = 10;
         PostsPageResponse expectedResponse = new PostsPageResponse();
         when(postService.getPosts(search, pageNumber, pageSize))
                 .thenReturn(expectedResponse);
 
 
-        ResponseEntity<PostsPageResponse> result = postController.getPosts(search, pageNumber, pageSize);
+        ResponseEntity<PostsPageResponse> result = postController.getPosts(search, pageNumber, pageSize, null, true, false);
 
 
         assertNotNull(result);
@@ -177,12 +177,12 @@ class PostControllerUnitTest {
         assertEquals(newLikes, result.getBody().intValue());
     }
 
-    // 10. Тест увеличения лайков (пост не найден — исключение)
+    // 10. Тест увеличения лайков (пост не найден)
     @Test
     void testIncrementLikes_NotFound() {
 
         Long id = 999L;
-        doThrow(new RuntimeException()).when(postService).incrementLikes(id);
+        when(postService.incrementLikes(id)).thenReturn(null);
 
 
         ResponseEntity<Integer> result = postController.incrementLikes(id);
@@ -202,10 +202,10 @@ class PostControllerUnitTest {
         CommentResponse comment2 = new CommentResponse(2L, "Second Comment", postId);
 
         List<CommentResponse> expectedComments = Arrays.asList(comment1, comment2);
-        when(postService.getComments(postId)).thenReturn(expectedComments);
+        when(postService.getComments(postId, null, 501)).thenReturn(expectedComments);
 
 
-        ResponseEntity<List<CommentResponse>> result = postController.getComments(postId);
+        ResponseEntity<List<CommentResponse>> result = postController.getComments(postId, null, 500);
 
 
         assertNotNull(result);
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.dto.ImportResponse;
+import ru.yandex.practicum.service.PostImportService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(PostImportController.class)
+class PostImportControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private PostImportService postImportService;
+
+    // 1. Тест импорта постов через COPY
+    @Test
+    void testImportPosts_CopyMode() throws Exception {
+
+        ImportResponse response = new ImportResponse();
+        response.addImported(2);
+        response.addError(3, "Не указан текст", 10);
+        when(postImportService.importPosts(any(), eq(PostImportService.Mode.COPY))).thenReturn(response);
+
+        mockMvc.perform(post("/api/posts/import")
+                        .param("mode", "copy")
+                        .contentType("application/x-ndjson")
+                        .content("{\"title\":\"a\",\"text\":\"b\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    // 2. Тест импорта с неизвестным режимом
+    @Test
+    void testImportPosts_UnknownMode() throws Exception {
+
+        mockMvc.perform(post("/api/posts/import")
+                        .param("mode", "magic")
+                        .contentType("application/x-ndjson")
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -10,12 +10,20 @@ import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.yandex.practicum.dto.PostResponse;
 import ru.yandex.practicum.dto.PostsPageResponse;
 import ru.yandex.practicum.model.Comment;
 import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.service.utils.CursorUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -73,6 +81,19 @@ class PostRepositoryTest {
         assertThat(result.isHasPrev()).isFalse();
     }
 
+    @Test
+    void findPosts_longText_returnsOnlyPreviewFromDatabase() {
+        String longText = "x".repeat(10_000);
+        Post saved = postRepository.save(new Post(null, "Long Post", longText, List.of("#tag1"), 0));
+
+        PostsPageResponse result = postRepository.findPosts("", 1, 10);
+
+        assertThat(result.getPosts().getFirst().getText())
+                .hasSize(PostRepository.FEED_TEXT_PREVIEW_LENGTH + 1);
+        // Отдельный пост по-прежнему читается целиком
+        assertThat(postRepository.findById(saved.getId()).orElseThrow().getText()).isEqualTo(longText);
+    }
+
     @Test
     void findPosts_withSearchTerm_returnsFilteredResults() {
         Post post1 = new Post(null, "Post1", "text about Java", List.of("#tag1", "#tag2"), 5);
@@ -85,6 +106,116 @@ class PostRepositoryTest {
         assertThat(result.getPosts()).hasSize(2); // оба поста содержат тег "#tag1"
     }
 
+    @Test
+    void findPosts_withSeveralTags_returnsPostsHavingAllOfThem() {
+        postRepository.save(new Post(null, "Post1", "text 1", List.of("#tag1", "#tag2"), 0));
+        postRepository.save(new Post(null, "Post2", "text 2", List.of("#tag1", "#tag3"), 0));
+
+        PostsPageResponse result = postRepository.findPosts("#tag2 #tag1", 1, 10);
+
+        assertThat(result.getPosts()).extracting(PostResponse::getTitle).containsExactly("Post1");
+        assertThat(postRepository.countPosts("#tag1 #tag2")).isEqualTo(1);
+    }
+
+    @Test
+    void findPosts_withSeveralTitleWords_matchesWordsInAnyOrderIgnoringCase() {
+        postRepository.save(new Post(null, "Spring Boot tutorial", "text 1", List.of(), 0));
+        postRepository.save(new Post(null, "Spring Data JDBC", "text 2", List.of(), 0));
+
+        PostsPageResponse result = postRepository.findPosts("tutorial spring", 1, 10);
+
+        assertThat(result.getPosts()).extracting(PostResponse::getTitle)
+                .containsExactly("Spring Boot tutorial");
+    }
+
+    @Test
+    void findPosts_withLikeWildcardsInSearch_treatsThemAsText() {
+        postRepository.save(new Post(null, "100% coverage", "text 1", List.of(), 0));
+        postRepository.save(new Post(null, "100 percent", "text 2", List.of(), 0));
+
+        PostsPageResponse result = postRepository.findPosts("100%", 1, 10);
+
+        assertThat(result.getPosts()).extracting(PostResponse::getTitle)
+                .containsExactly("100% coverage");
+    }
+
+    @Test
+    void findPostsByRelevance_ordersByTitleSimilarity() {
+        Post exact = postRepository.save(new Post(null, "Spring", "text 1", List.of(), 0));
+        Post partial = postRepository.save(new Post(null, "Spring Boot in Action", "text 2", List.of(), 0));
+
+        PostsPageResponse byId = postRepository.findPosts("spring", 1, 10);
+        PostsPageResponse byRelevance = postRepository.findPostsByRelevance("spring", 1, 10, true);
+
+        assertThat(byId.getPosts()).extracting(PostResponse::getId)
+                .containsExactly(partial.getId(), exact.getId());
+        assertThat(byRelevance.getPosts()).extracting(PostResponse::getId)
+                .containsExactly(exact.getId(), partial.getId());
+        assertThat(byRelevance.getNextCursor()).isNull();
+    }
+
+    @Test
+    void findPosts_fullPage_takesLastPageFromCountQuery() {
+        for (int i = 1; i <= 5; i++) {
+            postRepository.save(new Post(null, "Post " + i, "text " + i, List.of("#tag1"), 0));
+        }
+
+        PostsPageResponse result = postRepository.findPosts("", 1, 2);
+
+        assertThat(result.getPosts()).hasSize(2);
+        assertThat(result.getLastPage()).isEqualTo(3);
+        assertThat(result.isHasNext()).isTrue();
+    }
+
+    @Test
+    void countPosts_afterSave_isInvalidated() {
+        postRepository.save(new Post(null, "Post 1", "text 1", List.of("#tag1"), 0));
+        assertThat(postRepository.countPosts("#tag1")).isEqualTo(1);
+
+        postRepository.save(new Post(null, "Post 2", "text 2", List.of("#tag1"), 0));
+
+        assertThat(postRepository.countPosts("#tag1")).isEqualTo(2);
+    }
+
+    @Test
+    void findPostsWithoutTotal_returnsHasNextWithoutLastPage() {
+        for (int i = 1; i <= 3; i++) {
+            postRepository.save(new Post(null, "Post " + i, "text " + i, List.of("#tag1"), 0));
+        }
+
+        PostsPageResponse firstPage = postRepository.findPostsWithoutTotal("", 1, 2);
+        PostsPageResponse secondPage = postRepository.findPostsWithoutTotal("", 2, 2);
+
+        assertThat(firstPage.getPosts()).hasSize(2);
+        assertThat(firstPage.isHasNext()).isTrue();
+        assertThat(firstPage.getLastPage()).isZero();
+        assertThat(secondPage.getPosts()).hasSize(1);
+        assertThat(secondPage.isHasNext()).isFalse();
+        assertThat(secondPage.isHasPrev()).isTrue();
+    }
+
+    @Test
+    void findPostsAfter_withCursorFromFirstPage_returnsNextPage() {
+        Post post1 = postRepository.save(new Post(null, "Post 1", "text 1", List.of("#tag1"), 0));
+        Post post2 = postRepository.save(new Post(null, "Post 2", "text 2", List.of("#tag1"), 0));
+        Post post3 = postRepository.save(new Post(null, "Post 3", "text 3", List.of("#tag1"), 0));
+
+        PostsPageResponse firstPage = postRepository.findPosts("", 1, 2);
+
+        assertThat(firstPage.getPosts()).extracting(PostResponse::getId)
+                .containsExactly(post3.getId(), post2.getId());
+        assertThat(firstPage.getNextCursor()).isNotNull();
+
+        PostsPageResponse secondPage = postRepository.findPostsAfter(
+                "", CursorUtils.decode(firstPage.getNextCursor()), 2);
+
+        assertThat(secondPage.getPosts()).extracting(PostResponse::getId)
+                .containsExactly(post1.getId());
+        assertThat(secondPage.isHasPrev()).isTrue();
+        assertThat(secondPage.isHasNext()).isFalse();
+        assertThat(secondPage.getNextCursor()).isNull();
+    }
+
     @Test
     void findById_existingPost_returnsPost() {
         Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
@@ -142,14 +273,65 @@ class PostRepositoryTest {
     @Test
     void incrementLikes_existingPost_incrementsAndReturnsNewCount() {
         Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 5));
-        int newLikes = postRepository.incrementLikes(savedPost.getId());
+        Optional<Integer> newLikes = postRepository.incrementLikes(savedPost.getId());
 
-        assertThat(newLikes).isEqualTo(6);
+        assertThat(newLikes).contains(6);
         Optional<Post> updatedPost = postRepository.findById(savedPost.getId());
         assertThat(updatedPost).isPresent();
         assertThat(updatedPost.get().getLikesCount()).isEqualTo(6);
     }
 
+    @Test
+    void incrementLikes_nonExistingPost_returnsEmpty() {
+        assertThat(postRepository.incrementLikes(999L)).isEmpty();
+    }
+
+    @Test
+    void incrementLikes_parallelRequests_countsEveryLike() throws Exception {
+        Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+        int threads = 8;
+        int likesPerThread = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < likesPerThread; j++) {
+                    postRepository.incrementLikes(savedPost.getId());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Optional<Post> updatedPost = postRepository.findById(savedPost.getId());
+        assertThat(updatedPost).isPresent();
+        assertThat(updatedPost.get().getLikesCount()).isEqualTo(threads * likesPerThread);
+    }
+
+    @Test
+    void findCommentsByPostIds_severalPosts_returnsLatestCommentsPerPost() {
+        Post first = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+        Post second = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+        Post empty = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+        for (int i = 1; i <= 3; i++) {
+            postRepository.insertComment(new Comment(null, first.getId(), "first " + i));
+        }
+        postRepository.insertComment(new Comment(null, second.getId(), "second 1"));
+
+        List<Comment> comments = postRepository.findCommentsByPostIds(
+                List.of(first.getId(), second.getId(), empty.getId()), 2);
+
+        assertThat(comments).extracting(Comment::getText)
+                .containsExactly("first 3", "first 2", "second 1");
+    }
+
     @Test
     void findCommentsByPostId_existingPostWithComments_returnsComments() {
         Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
@@ -159,13 +341,60 @@ class PostRepositoryTest {
         postRepository.insertComment(comment1);
         postRepository.insertComment(comment2);
 
-        List<Comment> comments = postRepository.findCommentsByPostId(savedPost.getId());
+        List<Comment> comments = postRepository.findCommentsByPostId(savedPost.getId(), null, 10);
 
         assertThat(comments).hasSize(2);
         assertThat(comments.get(0).getText()).isEqualTo("Second comment");
         assertThat(comments.get(1).getText()).isEqualTo("First comment");
     }
 
+    @Test
+    void findCommentsByPostId_withLimitAndBefore_returnsNextPage() {
+        Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+        for (int i = 1; i <= 5; i++) {
+            postRepository.insertComment(new Comment(null, savedPost.getId(), "comment " + i));
+        }
+
+        List<Comment> firstPage = postRepository.findCommentsByPostId(savedPost.getId(), null, 2);
+        List<Comment> secondPage = postRepository.findCommentsByPostId(
+                savedPost.getId(), firstPage.getLast().getId(), 2);
+        List<Comment> lastPage = postRepository.findCommentsByPostId(
+                savedPost.getId(), secondPage.getLast().getId(), 2);
+
+        assertThat(firstPage).extracting(Comment::getText).containsExactly("comment 5", "comment 4");
+        assertThat(secondPage).extracting(Comment::getText).containsExactly("comment 3", "comment 2");
+        assertThat(lastPage).extracting(Comment::getText).containsExactly("comment 1");
+    }
+
+    @Test
+    void saveAll_severalPosts_insertsAllInOneBatch() {
+        postRepository.saveAll(List.of(
+                new Post(null, "Batch 1", TEST_TEXT, TEST_TAGS, 0),
+                new Post(null, "Batch 2", TEST_TEXT, List.of(), 0)));
+
+        assertThat(postRepository.countPosts("Batch")).isEqualTo(2);
+    }
+
+    @Test
+    void copyPosts_specialCharacters_arePreserved() {
+        String text = "Line 1\nLine 2, \"quoted\" and \\backslash";
+        List<String> tags = List.of("#a,b", "#\"q\"", "#back\\slash", "#{}");
+
+        long copied = postRepository.copyPosts(List.of(
+                new Post(null, "Copy \"1\"", text, tags, 0),
+                new Post(null, "Copy 2", "", List.of(), 0)));
+
+        assertThat(copied).isEqualTo(2);
+        PostsPageResponse page = postRepository.findPosts("Copy", 1, 10);
+        assertThat(page.getPosts()).hasSize(2);
+        PostResponse first = page.getPosts().stream()
+                .filter(p -> p.getTitle().equals("Copy \"1\""))
+                .findFirst()
+                .orElseThrow();
+        assertThat(first.getText()).isEqualTo(text);
+        assertThat(first.getTags()).containsExactlyElementsOf(tags);
+    }
+
     @Test
     void existsById_existingPost_returnsTrue() {
 
@@ -185,6 +414,32 @@ class PostRepositoryTest {
         assertThat(count).isEqualTo(2);
     }
 
+    @Test
+    void insertAndDeleteComment_keepCommentsCountInStep() {
+        Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+        Long commentId = postRepository.insertComment(new Comment(null, savedPost.getId(), "Comment 1"));
+        postRepository.insertComment(new Comment(null, savedPost.getId(), "Comment 2"));
+
+        assertThat(postRepository.findById(savedPost.getId()).orElseThrow().getCommentsCount()).isEqualTo(2);
+
+        postRepository.deleteComment(commentId);
+
+        assertThat(postRepository.findById(savedPost.getId()).orElseThrow().getCommentsCount()).isEqualTo(1);
+        assertThat(postRepository.findPosts("", 1, 10).getPosts().getFirst().getCommentsCount()).isEqualTo(1);
+    }
+
+    @Test
+    void reconcileCommentsCounts_driftedCounter_isRecomputed() {
+        Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+        postRepository.insertComment(new Comment(null, savedPost.getId(), "Comment 1"));
+        jdbcTemplate.update("UPDATE posts SET comments_count = 42 WHERE id = ?", savedPost.getId());
+
+        int fixed = postRepository.reconcileCommentsCounts();
+
+        assertThat(fixed).isEqualTo(1);
+        assertThat(postRepository.findById(savedPost.getId()).orElseThrow().getCommentsCount()).isEqualTo(1);
+    }
+
     @Test
     void insertComment_newComment_insertsAndReturnsId() {
         Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
@@ -201,6 +456,33 @@ class PostRepositoryTest {
         assertThat(savedComment.get().getText()).isEqualTo("Test comment text");
     }
 
+    @Test
+    void insertComments_severalPosts_returnsIdsInOrderAndUpdatesCounts() {
+        Post first = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+        Post second = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+
+        List<Long> ids = postRepository.insertComments(List.of(
+                new Comment(null, first.getId(), "a"),
+                new Comment(null, second.getId(), "b"),
+                new Comment(null, first.getId(), "c")
+        ));
+
+        assertThat(ids).hasSize(3);
+        assertThat(postRepository.findCommentById(ids.get(0)).orElseThrow().getText()).isEqualTo("a");
+        assertThat(postRepository.findCommentById(ids.get(1)).orElseThrow().getText()).isEqualTo("b");
+        assertThat(postRepository.findCommentById(ids.get(2)).orElseThrow().getText()).isEqualTo("c");
+        assertThat(postRepository.findById(first.getId()).orElseThrow().getCommentsCount()).isEqualTo(2);
+        assertThat(postRepository.findById(second.getId()).orElseThrow().getCommentsCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findExistingIds_mixedIds_returnsOnlyExisting() {
+        Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
+
+        assertThat(postRepository.findExistingIds(List.of(savedPost.getId(), 999999L)))
+                .containsExactly(savedPost.getId());
+    }
+
     @Test
     void updateComment_existingComment_updatesText() {
         Post savedPost = postRepository.save(new Post(null, TEST_TITLE, TEST_TEXT, TEST_TAGS, 0));
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.repository;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.yandex.practicum.repository.sql.ReadRouting;
+import ru.yandex.practicum.repository.sql.ReadWriteDataSource;
+import ru.yandex.practicum.repository.sql.ReplicaRoutingDataSource;
+import ru.yandex.practicum.repository.sql.SqlTimingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+class ReplicaRoutingDataSourceTest {
+
+    // Реплика в тесте — та же база, но соединения помечены своим application_name
+    private static final String REPLICA_APPLICATION_NAME = "blog-replica";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Container
+    static PostgreSQLContainer<?> postgres;
+
+    static {
+        String image = System.getProperty("test.container.image", "postgres:18");
+        postgres = new PostgreSQLContainer<>(image);
+        postgres.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("blog.datasource.replicas.urls", ReplicaRoutingDataSourceTest::replicaUrl);
+    }
+
+    private static String replicaUrl() {
+        String url = postgres.getJdbcUrl();
+        return url + (url.contains("?") ? "&" : "?") + "ApplicationName=" + REPLICA_APPLICATION_NAME;
+    }
+
+    // application_name соединения, на котором выполнилась транзакция
+    private String applicationName(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SHOW application_name", String.class));
+    }
+
+    @Test
+    void applicationDataSource_routesThroughReadWriteDataSource() {
+        assertThat(dataSource).isInstanceOf(SqlTimingDataSource.class);
+        DataSource target = ((SqlTimingDataSource) dataSource).getTargetDataSource();
+        assertThat(target).isInstanceOf(ReadWriteDataSource.class);
+        assertThat(((ReadWriteDataSource) target).getReplicas().healthyReplicas()).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyTransaction_usesReplica_otherwisePrimary() {
+        assertThat(applicationName(true)).isEqualTo(REPLICA_APPLICATION_NAME);
+        assertThat(applicationName(false)).isNotEqualTo(REPLICA_APPLICATION_NAME);
+        // Без транзакции запрос идёт в основную базу
+        assertThat(new JdbcTemplate(dataSource).queryForObject("SHOW application_name", String.class))
+                .isNotEqualTo(REPLICA_APPLICATION_NAME);
+    }
+
+    @Test
+    void readOnlyTransaction_primaryRequired_usesPrimary() {
+        assertThat(ReadRouting.onPrimary(() -> applicationName(true))).isNotEqualTo(REPLICA_APPLICATION_NAME);
+        assertThat(applicationName(true)).isEqualTo(REPLICA_APPLICATION_NAME);
+    }
+
+    @Test
+    void replicas_roundRobinSkipsFailedReplicaAndFallsBackToPrimary() throws Exception {
+        DataSource primary = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword());
+        DataSource replica = new DriverManagerDataSource(replicaUrl(), postgres.getUsername(), postgres.getPassword());
+        DataSource failed = new DriverManagerDataSource("jdbc:postgresql://localhost:1/none", "none", "none");
+
+        try (ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(failed, replica),
+                Duration.ofHours(1), 3, Duration.ofSeconds(10))) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(routing);
+            // Неудачная попытка уходит на следующую реплику; реплика исключается после трёх ошибок подряд
+            for (int i = 0; i < 6; i++) {
+                assertThat(jdbcTemplate.queryForObject("SHOW application_name", String.class))
+                        .isEqualTo(REPLICA_APPLICATION_NAME);
+                assertThat(routing.healthyReplicas()).isEqualTo(i < 4 ? 2 : 1);
+            }
+
+            // Все реплики недоступны — чтение идёт в основную базу, но в режиме только для чтения
+            try (ReplicaRoutingDataSource primaryOnly = new ReplicaRoutingDataSource(primary, List.of(failed),
+                    Duration.ofHours(1), 1, Duration.ofSeconds(10));
+                 Connection connection = primaryOnly.getConnection()) {
+                assertThat(connection.isReadOnly()).isTrue();
+                assertThat(primaryOnly.healthyReplicas()).isZero();
+            }
+        }
+    }
+
+    @Test
+    void replicas_busyPoolIsNotMarkedDown_healthCheckExcludesFailedReplica() throws Exception {
+        DataSource primary = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword());
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(replicaUrl());
+        config.setUsername(postgres.getUsername());
+        config.setPassword(postgres.getPassword());
+        config.setMaximumPoolSize(1);
+        config.setConnectionTimeout(250);
+        DataSource failed = new DriverManagerDataSource("jdbc:postgresql://localhost:1/none", "none", "none");
+
+        try (ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary,
+                List.of(new HikariDataSource(config), failed), Duration.ofHours(1), 1, Duration.ofSeconds(10))) {
+            try (Connection held = routing.getConnection()) {
+                // Единственное соединение пула занято: чтение уходит в основную базу, но реплика остаётся в очереди
+                for (int i = 0; i < 3; i++) {
+                    try (Connection connection = routing.getConnection()) {
+                        assertThat(connection.getClientInfo("ApplicationName")).isNotEqualTo(REPLICA_APPLICATION_NAME);
+                    }
+                }
+                assertThat(routing.healthyReplicas()).isEqualTo(1);
+
+                // Проверка с занятым пулом тоже не исключает реплику
+                routing.checkReplicas();
+                assertThat(routing.healthyReplicas()).isEqualTo(1);
+            }
+
+            // Реплика без отставания остаётся в очереди
+            routing.checkReplicas();
+            assertThat(routing.healthyReplicas()).isEqualTo(1);
+            assertThat(new JdbcTemplate(routing).queryForObject("SHOW application_name", String.class))
+                    .isEqualTo(REPLICA_APPLICATION_NAME);
+        }
+    }
+
+    @Test
+    void readOnlyTransactionManager_overReadWriteDataSource_doesNotTouchPoolWithoutStatements() {
+        DataSource failing = new DriverManagerDataSource("jdbc:postgresql://localhost:1/none", "none", "none");
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(new ReadWriteDataSource(failing, null)));
+        transaction.setReadOnly(true);
+
+        // Транзакция без операторов (ответ из кеша) не запрашивает соединение у базы
+        String result = transaction.execute(status -> "cached");
+        assertThat(result).isEqualTo("cached");
+    }
+}
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.yandex.practicum.repository.sql.SlowQueryLog;
+import ru.yandex.practicum.repository.sql.SqlTimingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+@ExtendWith(OutputCaptureExtension.class)
+class SqlTimingDataSourceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Container
+    static PostgreSQLContainer<?> postgres;
+
+    static {
+        String image = System.getProperty("test.container.image", "postgres:18");
+        postgres = new PostgreSQLContainer<>(image);
+        postgres.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    // Журнал с порогом 0, запоминающий все операторы
+    private static class RecordingSlowQueryLog extends SlowQueryLog {
+        private final List<String> sql = new ArrayList<>();
+        private final List<Map<Integer, Object>> parameters = new ArrayList<>();
+        private final List<Long> rows = new ArrayList<>();
+
+        RecordingSlowQueryLog(DataSource explainDataSource) {
+            super(Duration.ZERO, explainDataSource, 1, Duration.ofHours(1));
+        }
+
+        @Override
+        public void record(String sql, Map<Integer, Object> parameters, long elapsedNanos, long rows) {
+            super.record(sql, parameters, elapsedNanos, rows);
+            this.sql.add(sql);
+            this.parameters.add(new TreeMap<>(parameters));
+            this.rows.add(rows);
+        }
+    }
+
+    private RecordingSlowQueryLog slowQueryLog;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        slowQueryLog = new RecordingSlowQueryLog(dataSource);
+        jdbcTemplate = new JdbcTemplate(new SqlTimingDataSource(dataSource, slowQueryLog));
+        new JdbcTemplate(dataSource).update("DELETE FROM comments");
+        new JdbcTemplate(dataSource).update("DELETE FROM posts");
+    }
+
+    @Test
+    void applicationDataSource_isWrapped() {
+        assertThat(dataSource).isInstanceOf(SqlTimingDataSource.class);
+    }
+
+    @Test
+    void query_recordsSqlParametersAndRowCount() {
+        jdbcTemplate.update("INSERT INTO posts (title, text) VALUES (?, ?), (?, ?)", "a", "text a", "b", "text b");
+
+        List<String> titles = jdbcTemplate.queryForList(
+                "SELECT title FROM posts WHERE title IN (?, ?) ORDER BY title", String.class, "a", "missing");
+
+        assertThat(titles).containsExactly("a");
+        assertThat(slowQueryLog.sql).hasSize(2);
+        assertThat(slowQueryLog.rows).containsExactly(2L, 1L);
+        assertThat(slowQueryLog.sql.get(1)).startsWith("SELECT title FROM posts");
+        assertThat(slowQueryLog.parameters.get(1)).containsExactly(Map.entry(1, "a"), Map.entry(2, "missing"));
+    }
+
+    @Test
+    void batchUpdate_recordsTotalRowsAndFirstParameters() {
+        jdbcTemplate.batchUpdate("INSERT INTO posts (title, text) VALUES (?, ?)",
+                List.of(new Object[]{"a", "1"}, new Object[]{"b", "2"}, new Object[]{"c", "3"}));
+
+        assertThat(slowQueryLog.rows).containsExactly(3L);
+        assertThat(slowQueryLog.parameters.getFirst()).containsExactly(Map.entry(1, "a"), Map.entry(2, "1"));
+    }
+
+    @Test
+    void explainSlowest_select_returnsAnalyzedPlan() {
+        jdbcTemplate.update("INSERT INTO posts (title, text) VALUES (?, ?)", "a", "text");
+        jdbcTemplate.queryForList("SELECT id FROM posts WHERE title = ?", Long.class, "a");
+
+        List<String> plans = slowQueryLog.explainSlowest();
+
+        // INSERT не разбирается, SELECT — с фактическим временем и буферами
+        assertThat(plans).hasSize(1);
+        assertThat(plans.getFirst()).contains("actual time").contains("Buffers");
+        assertThat(slowQueryLog.explainSlowest()).isEmpty();
+    }
+
+    @Test
+    void explainSlowest_modifyingCte_isNotExecuted(CapturedOutput output) {
+        jdbcTemplate.queryForList(
+                "WITH inserted AS (INSERT INTO posts (title, text) VALUES (?, ?) RETURNING id) SELECT id FROM inserted",
+                Long.class, "a", "text");
+        jdbcTemplate.update("WITH deleted AS (DELETE FROM comments WHERE id = ? RETURNING post_id) "
+                + "UPDATE posts SET likes_count = likes_count WHERE id IN (SELECT post_id FROM deleted)", 0L);
+        jdbcTemplate.queryForList("SELECT id FROM posts FOR UPDATE", Long.class);
+
+        // Изменяющие запросы не повторяются (и не дают ошибку «read-only transaction» в логе)
+        assertThat(slowQueryLog.explainSlowest()).isEmpty();
+        assertThat(output).doesNotContain("Не удалось получить план запроса");
+        assertThat(new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM posts", Integer.class))
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,228 @@
+package ru.yandex.practicum.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.model.ImageSize;
+import ru.yandex.practicum.service.FileService;
+import ru.yandex.practicum.service.UploadLimitExceededException;
+import ru.yandex.practicum.service.cache.LruCache;
+import ru.yandex.practicum.service.storage.CachedImageResource;
+import ru.yandex.practicum.service.storage.LocalImageStorage;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileServiceTest {
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3};
+
+    @TempDir
+    Path uploadDir;
+
+    @TempDir
+    Path stagingDir;
+
+    private LocalImageStorage storage;
+    private LruCache<String, CachedImageResource> imageCache;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalImageStorage(uploadDir);
+        imageCache = new LruCache<>("images", 1024, Duration.ofMinutes(1), image -> image.getByteArray().length);
+    }
+
+    private FileService fileService(long maxSize, int maxConcurrentUploads) {
+        return new FileService(storage, imageCache, DataSize.ofBytes(16), stagingDir.toString(),
+                DataSize.ofBytes(maxSize), 1_000_000, maxConcurrentUploads, Duration.ofMillis(100), 1, 10);
+    }
+
+    // Содержимое файла в хранилище (null, если его нет)
+    private byte[] stored(String key) throws Exception {
+        Resource resource = storage.load(key);
+        return resource == null ? null : resource.getContentAsByteArray();
+    }
+
+    @Test
+    void updateImage_jpegContent_storesFileWithoutTempLeftovers() throws Exception {
+
+        FileService fileService = fileService(1024, 1);
+        // Расширение не важно — проверяется содержимое
+        MockMultipartFile file = new MockMultipartFile("image", "photo.png", "image/png", JPEG);
+
+        String path = fileService.updateImage(1L, file);
+
+        assertEquals("1.jpg", path);
+        assertArrayEquals(JPEG, stored("1.jpg"));
+        try (var files = Files.list(stagingDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void updateImage_realJpeg_generatesRenditionsInBackground() throws Exception {
+
+        FileService fileService = fileService(1024 * 1024, 1);
+        BufferedImage source = new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(source, "jpeg", jpeg);
+
+        fileService.updateImage(1L, new MockMultipartFile("image", "a.jpg", "image/jpeg", jpeg.toByteArray()));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((stored("1-thumb.jpg") == null || stored("1-medium.jpg") == null)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        BufferedImage thumbImage = ImageIO.read(new ByteArrayInputStream(stored("1-thumb.jpg")));
+        assertEquals(200, thumbImage.getWidth());
+        assertEquals(100, thumbImage.getHeight());
+        assertEquals(800, ImageIO.read(new ByteArrayInputStream(stored("1-medium.jpg"))).getWidth());
+        assertEquals("1-thumb.jpg", fileService.getImage(1L, ImageSize.THUMB).getFilename());
+        fileService.shutdown();
+    }
+
+    @Test
+    void getImage_renditionNotReady_returnsOriginal() throws Exception {
+
+        FileService fileService = fileService(1024, 1);
+        Path original = stagingDir.resolve("original.jpg");
+        Files.write(original, JPEG);
+        storage.store("1.jpg", original);
+
+        assertEquals("1.jpg", fileService.getImage(1L, ImageSize.MEDIUM).getFilename());
+        assertNull(fileService.getImage(2L, ImageSize.MEDIUM));
+    }
+
+    @Test
+    void getImage_smallImage_servedFromCacheUntilUpdated() throws Exception {
+
+        FileService fileService = fileService(1024, 1);
+        fileService.updateImage(1L, new MockMultipartFile("image", "a.jpg", "image/jpeg", JPEG));
+
+        Resource first = fileService.getImage(1L, ImageSize.ORIGINAL);
+        Resource second = fileService.getImage(1L, ImageSize.ORIGINAL);
+
+        assertSame(first, second);
+        assertArrayEquals(JPEG, second.getContentAsByteArray());
+        assertEquals(1, imageCache.hitCount());
+        assertEquals(JPEG.length, imageCache.weight());
+
+        byte[] updated = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 9};
+        fileService.updateImage(1L, new MockMultipartFile("image", "b.jpg", "image/jpeg", updated));
+
+        assertArrayEquals(updated, fileService.getImage(1L, ImageSize.ORIGINAL).getContentAsByteArray());
+    }
+
+    @Test
+    void getImage_imageOverEntryLimit_isNotCached() throws Exception {
+
+        FileService fileService = fileService(1024, 1);
+        byte[] big = new byte[64];
+        System.arraycopy(JPEG, 0, big, 0, JPEG.length);
+        fileService.updateImage(1L, new MockMultipartFile("image", "a.jpg", "image/jpeg", big));
+
+        Resource image = fileService.getImage(1L, ImageSize.ORIGINAL);
+
+        assertArrayEquals(big, image.getContentAsByteArray());
+        assertEquals(0, imageCache.size());
+    }
+
+    @Test
+    void updateImage_tooManyPixels_throwsAndKeepsNoFile() throws Exception {
+
+        FileService fileService = fileService(1024 * 1024, 1);
+        // Файл небольшой, но в декодированном виде занимал бы 2000 × 1000 пикселей
+        BufferedImage source = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(source, "jpeg", jpeg);
+        MockMultipartFile file = new MockMultipartFile("image", "a.jpg", "image/jpeg", jpeg.toByteArray());
+
+        assertThrows(IllegalArgumentException.class, () -> fileService.updateImage(1L, file));
+        assertNull(stored("1.jpg"));
+    }
+
+    @Test
+    void updateImage_notJpeg_throwsIllegalArgumentException() throws Exception {
+
+        FileService fileService = fileService(1024, 1);
+        MockMultipartFile file = new MockMultipartFile("image", "photo.jpg", "image/jpeg", "not an image".getBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> fileService.updateImage(1L, file));
+        assertNull(stored("1.jpg"));
+    }
+
+    @Test
+    void updateImage_actualSizeOverLimit_throwsAndKeepsPreviousImage() throws Exception {
+
+        FileService fileService = fileService(16, 1);
+        fileService.updateImage(1L, new MockMultipartFile("image", "a.jpg", "image/jpeg", JPEG));
+
+        byte[] big = new byte[64];
+        System.arraycopy(JPEG, 0, big, 0, JPEG.length);
+        // Заявленный размер занижен, превышение обнаруживается при копировании
+        MockMultipartFile file = new MockMultipartFile("image", "b.jpg", "image/jpeg", big) {
+            @Override
+            public long getSize() {
+                return 1;
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> fileService.updateImage(1L, file));
+        assertArrayEquals(JPEG, stored("1.jpg"));
+    }
+
+    @Test
+    void updateImage_allPermitsBusy_throwsUploadLimitExceededException() throws Exception {
+
+        FileService fileService = fileService(1024, 1);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MockMultipartFile slowFile = new MockMultipartFile("image", "a.jpg", "image/jpeg", JPEG) {
+            @Override
+            public InputStream getInputStream() {
+                reading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new ByteArrayInputStream(JPEG);
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> slowUpload = executor.submit(() -> fileService.updateImage(1L, slowFile));
+        reading.await(5, TimeUnit.SECONDS);
+
+        // Без разрешения файл у запроса не запрашивается (тело загрузки не разбирается)
+        AtomicBoolean requested = new AtomicBoolean();
+        assertThrows(UploadLimitExceededException.class, () -> fileService.updateImage(2L, () -> {
+            requested.set(true);
+            return new MockMultipartFile("image", "b.jpg", "image/jpeg", JPEG);
+        }));
+        assertFalse(requested.get());
+
+        release.countDown();
+        assertEquals("1.jpg", slowUpload.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.service.LikeBuffer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class LikeBufferTest {
+
+    private static final Long POST_ID = 1L;
+
+    private PostRepository postRepository;
+    private LikeBuffer likeBuffer;
+
+    @BeforeEach
+    void setUp() {
+        postRepository = mock(PostRepository.class);
+        // Большой интервал: сброс выполняется только вручную
+        likeBuffer = new LikeBuffer(postRepository, true, Duration.ofHours(1), 3, 100);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        likeBuffer.shutdown();
+    }
+
+    @Test
+    void increment_accumulatesInMemory_andReturnsApproximateCount() {
+
+        when(postRepository.findLikesCount(POST_ID)).thenReturn(Optional.of(5));
+
+        assertEquals(6, likeBuffer.increment(POST_ID));
+        assertEquals(7, likeBuffer.increment(POST_ID));
+
+        verify(postRepository, times(1)).findLikesCount(POST_ID);
+        verify(postRepository, never()).incrementLikes(any());
+        verify(postRepository, never()).addLikes(anyMap());
+    }
+
+    @Test
+    void increment_nonExistingPost_returnsNull() {
+
+        when(postRepository.findLikesCount(POST_ID)).thenReturn(Optional.empty());
+
+        assertNull(likeBuffer.increment(POST_ID));
+    }
+
+    @Test
+    void flush_writesAccumulatedDeltasInOneCall() {
+
+        when(postRepository.findLikesCount(POST_ID)).thenReturn(Optional.of(5));
+        when(postRepository.findLikesCount(2L)).thenReturn(Optional.of(0));
+        when(postRepository.addLikes(anyMap())).thenReturn(Map.of(POST_ID, 7, 2L, 1));
+        likeBuffer.increment(POST_ID);
+        likeBuffer.increment(POST_ID);
+        likeBuffer.increment(2L);
+
+        likeBuffer.flush();
+
+        likeBuffer.flush();
+
+        // Повторный сброс без новых лайков в базу не ходит
+        verify(postRepository, times(1)).addLikes(anyMap());
+        verify(postRepository).addLikes(Map.of(POST_ID, 2L, 2L, 1L));
+    }
+
+    @Test
+    void flush_repositoryFails_keepsDeltasForNextFlush() {
+
+        when(postRepository.findLikesCount(POST_ID)).thenReturn(Optional.of(0));
+        when(postRepository.addLikes(anyMap()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(Map.of(POST_ID, 1));
+        likeBuffer.increment(POST_ID);
+
+        assertThrows(RuntimeException.class, () -> likeBuffer.flush());
+        likeBuffer.flush();
+
+        verify(postRepository, times(2)).addLikes(Map.of(POST_ID, 1L));
+    }
+
+    @Test
+    void increment_overMaxPending_writesSynchronously() {
+
+        when(postRepository.findLikesCount(POST_ID)).thenReturn(Optional.of(0));
+        when(postRepository.incrementLikes(POST_ID)).thenReturn(Optional.of(1));
+        likeBuffer.increment(POST_ID);
+        likeBuffer.increment(POST_ID);
+        likeBuffer.increment(POST_ID);
+
+        Integer likes = likeBuffer.increment(POST_ID);
+
+        assertNotNull(likes);
+        verify(postRepository, times(1)).incrementLikes(POST_ID);
+    }
+
+    @Test
+    void flush_releasesIdleCounters_soNewPostsAreStillBuffered() throws InterruptedException {
+
+        // Отслеживается не больше одного поста
+        likeBuffer.shutdown();
+        likeBuffer = new LikeBuffer(postRepository, true, Duration.ofHours(1), 100, 1);
+        when(postRepository.findLikesCount(anyLong())).thenReturn(Optional.of(0));
+        when(postRepository.addLikes(anyMap())).thenReturn(Map.of(POST_ID, 1));
+        likeBuffer.increment(POST_ID);
+
+        likeBuffer.flush();
+        likeBuffer.increment(2L);
+
+        assertEquals(0, likeBuffer.pending(POST_ID));
+        assertEquals(1, likeBuffer.pending(2L));
+        verify(postRepository, never()).incrementLikes(any());
+    }
+
+    @Test
+    void shutdown_flushesPendingLikes() throws InterruptedException {
+
+        when(postRepository.findLikesCount(POST_ID)).thenReturn(Optional.of(0));
+        when(postRepository.addLikes(anyMap())).thenReturn(Map.of(POST_ID, 1));
+        likeBuffer.increment(POST_ID);
+
+        likeBuffer.shutdown();
+
+        verify(postRepository, times(1)).addLikes(Map.of(POST_ID, 1L));
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import ru.yandex.practicum.service.storage.LocalImageStorage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalImageStorageTest {
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path staging;
+
+    @Test
+    void store_placesFileIntoHashedSubdirectories() throws Exception {
+
+        LocalImageStorage storage = new LocalImageStorage(root);
+        Path source = Files.write(staging.resolve("upload.tmp"), new byte[]{1, 2, 3});
+
+        storage.store("1.jpg", source);
+
+        Resource resource = storage.load("1.jpg");
+        assertNotNull(resource);
+        assertArrayEquals(new byte[]{1, 2, 3}, resource.getContentAsByteArray());
+        // root/ab/cd/1.jpg
+        Path stored = resource.getFile().toPath();
+        assertEquals(root, stored.getParent().getParent().getParent());
+        assertFalse(Files.exists(root.resolve("1.jpg")));
+    }
+
+    @Test
+    void load_legacyFlatFile_isStillReadable() throws Exception {
+
+        LocalImageStorage storage = new LocalImageStorage(root);
+        Files.write(root.resolve("7.jpg"), new byte[]{7});
+
+        assertArrayEquals(new byte[]{7}, storage.load("7.jpg").getContentAsByteArray());
+
+        storage.delete("7.jpg");
+        assertNull(storage.load("7.jpg"));
+    }
+
+    @Test
+    void load_missingKey_returnsNull() {
+
+        assertNull(new LocalImageStorage(root).load("1.jpg"));
+    }
+
+    @Test
+    void load_keyWithPath_throwsIllegalArgumentException() {
+
+        LocalImageStorage storage = new LocalImageStorage(root);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.load("../1.jpg"));
+    }
+}
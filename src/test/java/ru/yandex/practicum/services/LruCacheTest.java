@@ -0,0 +1,106 @@
+package ru.yandex.practicum.services;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.service.cache.LruCache;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void put_overMaxSize_evictsLeastRecentlyUsed() {
+
+        LruCache<String, Integer> cache = new LruCache<>("test", 2, Duration.ofMinutes(1));
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void get_expiredEntry_returnsNull() throws InterruptedException {
+
+        LruCache<String, Integer> cache = new LruCache<>("test", 10, Duration.ofMillis(1));
+        cache.put("a", 1);
+
+        Thread.sleep(5);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void getWithLoader_invalidatedDuringLoad_doesNotCacheStaleValue() {
+
+        LruCache<String, Integer> cache = new LruCache<>("test", 10, Duration.ofMinutes(1));
+
+        Integer loaded = cache.get("a", () -> {
+            cache.invalidateAll();
+            return 1;
+        });
+
+        assertEquals(1, loaded);
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.get("a", () -> 2));
+        assertEquals(2, cache.get("a"));
+    }
+
+    @Test
+    void getWithLoader_keyInvalidatedDuringLoad_doesNotCacheStaleValue() {
+
+        LruCache<String, Integer> cache = new LruCache<>("test", 10, Duration.ofMinutes(1));
+
+        Integer loaded = cache.get("a", () -> {
+            cache.invalidate("a");
+            return 1;
+        });
+
+        assertEquals(1, loaded);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void getWithLoader_otherKeyInvalidatedDuringLoad_cachesValue() {
+
+        LruCache<String, Integer> cache = new LruCache<>("test", 10, Duration.ofMinutes(1));
+        cache.put("a", 1);
+
+        // Пока загружается b, сбрасывается a: загрузка b от этого не устаревает
+        Integer loaded = cache.get("b", () -> {
+            cache.invalidate("a");
+            return 2;
+        });
+
+        assertEquals(2, loaded);
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.get("b"));
+    }
+
+    @Test
+    void put_overMaxWeight_evictsLeastRecentlyUsedUntilWithinBudget() {
+
+        LruCache<String, byte[]> cache = new LruCache<>("test", 10, Duration.ofMinutes(1), value -> value.length);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        cache.get("a");
+
+        cache.put("c", new byte[6]);
+
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(10, cache.weight());
+
+        // Запись тяжелее всего кеша не кешируется и ничего не вытесняет
+        cache.put("d", new byte[11]);
+        assertNull(cache.get("d"));
+        assertEquals(2, cache.size());
+    }
+}
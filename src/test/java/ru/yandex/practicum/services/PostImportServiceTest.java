@@ -0,0 +1,114 @@
+package ru.yandex.practicum.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.dto.ImportResponse;
+import ru.yandex.practicum.dto.PostsPageResponse;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.service.PostImportService;
+import ru.yandex.practicum.service.cache.LruCache;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class PostImportServiceTest {
+
+    private PostRepository postRepository;
+    private LruCache<String, PostsPageResponse> feedCache;
+    private PostImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        postRepository = mock(PostRepository.class);
+        feedCache = new LruCache<>("feed", 10, Duration.ofMinutes(1));
+        importService = new PostImportService(postRepository, JsonMapper.builder().build(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), feedCache, 2, 3, 10);
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importPosts_batchMode_writesInBatchesOfConfiguredSize() throws Exception {
+
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<List<Post>>getArgument(0).size());
+            return null;
+        }).when(postRepository).saveAll(any());
+
+        ImportResponse result = importService.importPosts(ndjson(
+                "{\"title\":\"t1\",\"text\":\"a\",\"tags\":[\"#x\"]}",
+                "",
+                "{\"title\":\"t2\",\"text\":\"b\"}",
+                "{\"title\":\"t3\",\"text\":\"c\"}"), PostImportService.Mode.BATCH);
+
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertEquals(List.of(2, 1), batchSizes);
+        verify(postRepository, never()).copyPosts(any());
+    }
+
+    @Test
+    void importPosts_invalidLines_reportedWithLineNumbers() throws Exception {
+
+        List<Integer> copySizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            copySizes.add(invocation.<List<Post>>getArgument(0).size());
+            return 1L;
+        }).when(postRepository).copyPosts(any());
+
+        ImportResponse result = importService.importPosts(ndjson(
+                "{\"title\":\"ok\",\"text\":\"a\"}",
+                "{not json",
+                "{\"text\":\"no title\"}",
+                "{\"title\":\"no text\"}"), PostImportService.Mode.COPY);
+
+        assertEquals(1, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(2L, 3L, 4L), result.getErrors().stream().map(ImportResponse.ItemError::getLine).toList());
+        assertEquals(List.of(1), copySizes);
+    }
+
+    @Test
+    void importPosts_rejectedBatch_retriesRowsOneByOne() throws Exception {
+
+        doThrow(new DataIntegrityViolationException("batch failed"))
+                .when(postRepository).saveAll(argThat(posts -> posts.size() > 1));
+        doThrow(new DataIntegrityViolationException("bad row"))
+                .when(postRepository).saveAll(argThat(posts -> posts.size() == 1 && posts.getFirst().getTitle().equals("bad")));
+
+        ImportResponse result = importService.importPosts(ndjson(
+                "{\"title\":\"good\",\"text\":\"a\"}",
+                "{\"title\":\"bad\",\"text\":\"b\"}"), PostImportService.Mode.BATCH);
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2L, result.getErrors().getFirst().getLine());
+    }
+
+    @Test
+    void importPosts_afterImport_invalidatesFeedCache() throws Exception {
+
+        feedCache.put("page::1:10", new PostsPageResponse());
+
+        importService.importPosts(ndjson("{\"title\":\"t\",\"text\":\"a\"}"), PostImportService.Mode.BATCH);
+
+        assertNull(feedCache.get("page::1:10"));
+    }
+}
@@ -4,12 +4,21 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.config.CacheConfig;
 import ru.yandex.practicum.dto.*;
 import ru.yandex.practicum.model.Comment;
 import ru.yandex.practicum.model.Post;
 import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.repository.sql.ReadRouting;
+import ru.yandex.practicum.service.LikeBuffer;
 import ru.yandex.practicum.service.PostService;
+import ru.yandex.practicum.service.RecentWrites;
+import ru.yandex.practicum.service.cache.LruCache;
+import ru.yandex.practicum.service.utils.CursorUtils;
 
+import java.time.Duration;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -23,7 +32,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import static org.mockito.Mockito.*;
 
-@SpringBootTest(classes = PostService.class,
+@SpringBootTest(classes = {PostService.class, LikeBuffer.class, RecentWrites.class, CacheConfig.class},
         webEnvironment = SpringBootTest.WebEnvironment.NONE)
 class PostServiceTest {
 
@@ -33,6 +42,15 @@ class PostServiceTest {
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private LruCache<Long, PostResponse> postCache;
+
+    @Autowired
+    private LruCache<String, PostsPageResponse> feedCache;
+
+    @Autowired
+    private RecentWrites recentWrites;
+
     private static final Long POST_ID = 1L;
     private static final Long COMMENT_ID = 101L;
 
@@ -47,6 +65,8 @@ class PostServiceTest {
         postRequest = new PostRequest("New Title", "New Content", List.of("newTag"));
         comment = new Comment(COMMENT_ID, POST_ID, "Comment Text");
         commentRequest = new CommentRequest("Updated Comment Text");
+        postCache.invalidateAll();
+        feedCache.invalidateAll();
     }
 
     @Test
@@ -75,11 +95,68 @@ class PostServiceTest {
         verify(postRepository, times(1)).findPosts(search, pageNumber, pageSize);
     }
 
+    @Test
+    void getPostsAfter_validCursor_queriesRepositoryWithDecodedId() {
+
+        String cursor = CursorUtils.encode(42L);
+        PostResponse longPost = new PostResponse(41L, "Long Post", "B".repeat(150), Collections.emptyList(), 0, 0);
+        PostsPageResponse page = new PostsPageResponse(List.of(longPost), true, false, 0, null);
+
+        when(postRepository.findPostsAfter("", 42L, 10)).thenReturn(page);
+
+
+        PostsPageResponse result = postService.getPostsAfter("", cursor, 10);
+
+        assertEquals(1, result.getPosts().size());
+        assertTrue(result.getPosts().getFirst().getText().endsWith("..."));
+
+        verify(postRepository, times(1)).findPostsAfter("", 42L, 10);
+    }
+
+    @Test
+    void getPostsAfter_brokenCursor_throwsIllegalArgumentException() {
+
+        assertThrows(IllegalArgumentException.class, () -> postService.getPostsAfter("", "not-a-cursor", 10));
+
+        verify(postRepository, never()).findPostsAfter(anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void getPosts_sameNormalisedSearch_isServedFromCache() {
+
+        PostsPageResponse page = new PostsPageResponse(List.of(), false, false, 0);
+        when(postRepository.findPosts(anyString(), eq(1), eq(10))).thenReturn(page);
+
+
+        postService.getPosts("Java  #tag2 #tag1", 1, 10);
+        PostsPageResponse result = postService.getPosts("java #tag1 #tag2", 1, 10);
+
+
+        assertSame(page, result);
+        verify(postRepository, times(1)).findPosts(anyString(), eq(1), eq(10));
+    }
+
+    @Test
+    void getPosts_afterCreatePost_isReloaded() {
+
+        PostsPageResponse page = new PostsPageResponse(List.of(), false, false, 0);
+        when(postRepository.findPosts("", 1, 10)).thenReturn(page);
+        when(postRepository.save(any(Post.class))).thenReturn(post);
+
+
+        postService.getPosts("", 1, 10);
+        postService.createPost(postRequest);
+        postService.getPosts("", 1, 10);
+
+
+        verify(postRepository, times(2)).findPosts("", 1, 10);
+    }
+
     @Test
     void getPost_existingPost_returnsPostResponse() {
         
+        post.setCommentsCount(3);
         when(postRepository.findById(POST_ID)).thenReturn(Optional.of(post));
-        when(postRepository.getCommentsCount(POST_ID)).thenReturn(3);
 
        
         PostResponse result = postService.getPost(POST_ID);
@@ -94,7 +171,38 @@ class PostServiceTest {
         assertEquals(3, result.getCommentsCount());
 
         verify(postRepository, times(1)).findById(POST_ID);
-        verify(postRepository, times(1)).getCommentsCount(POST_ID);
+        // Количество комментариев берётся из денормализованного счётчика
+        verify(postRepository, never()).getCommentsCount(anyLong());
+    }
+
+    @Test
+    void getPost_repeatedRead_isServedFromCache() {
+
+        when(postRepository.findById(POST_ID)).thenReturn(Optional.of(post));
+
+
+        postService.getPost(POST_ID);
+        PostResponse result = postService.getPost(POST_ID);
+
+
+        assertEquals("Test Title", result.getTitle());
+        verify(postRepository, times(1)).findById(POST_ID);
+    }
+
+    @Test
+    void getPost_afterAddComment_isReloaded() {
+
+        when(postRepository.findById(POST_ID)).thenReturn(Optional.of(post));
+        when(postRepository.existsById(POST_ID)).thenReturn(true);
+        when(postRepository.insertComment(any(Comment.class))).thenReturn(COMMENT_ID);
+
+
+        postService.getPost(POST_ID);
+        postService.addComment(POST_ID, commentRequest);
+        postService.getPost(POST_ID);
+
+
+        verify(postRepository, times(2)).findById(POST_ID);
     }
 
     @Test
@@ -137,8 +245,8 @@ class PostServiceTest {
     @Test
     void updatePost_existingPost_updatesAndReturnsPostResponse() {
         
+        post.setCommentsCount(2);
         when(postRepository.findById(POST_ID)).thenReturn(Optional.of(post));
-        when(postRepository.getCommentsCount(POST_ID)).thenReturn(2);
 
        
         PostResponse result = postService.updatePost(POST_ID, postRequest);
@@ -154,7 +262,7 @@ class PostServiceTest {
 
         verify(postRepository, times(1)).findById(POST_ID);
         verify(postRepository, times(1)).update(any(Post.class));
-        verify(postRepository, times(1)).getCommentsCount(POST_ID);
+        verify(postRepository, never()).getCommentsCount(anyLong());
     }
 
     @Test
@@ -203,10 +311,10 @@ class PostServiceTest {
     @Test
     void incrementLikes_existingPost_incrementsAndReturnsNewCount() {
         
-        when(postRepository.incrementLikes(POST_ID)).thenReturn(6);
+        when(postRepository.incrementLikes(POST_ID)).thenReturn(Optional.of(6));
 
        
-        int result = postService.incrementLikes(POST_ID);
+        Integer result = postService.incrementLikes(POST_ID);
 
        
         assertEquals(6, result);
@@ -215,6 +323,85 @@ class PostServiceTest {
     }
 
 
+    @Test
+    void incrementLikes_readDuringUpdate_doesNotCacheOldCount() {
+
+        when(postRepository.findById(POST_ID)).thenReturn(Optional.of(post));
+        postService.getPost(POST_ID);
+        // Параллельное чтение успевает между сбросом кеша и UPDATE и загружает старое значение
+        when(postRepository.incrementLikes(POST_ID)).thenAnswer(invocation -> {
+            postService.getPost(POST_ID);
+            post.setLikesCount(6);
+            return Optional.of(6);
+        });
+
+        postService.incrementLikes(POST_ID);
+
+        assertEquals(6, postService.getPost(POST_ID).getLikesCount());
+    }
+
+    @Test
+    void getPost_writeBehindLikes_includesPendingAndReloadsAfterFlush() throws InterruptedException {
+
+        LikeBuffer likeBuffer = new LikeBuffer(postRepository, true, Duration.ofHours(1), 1000, 100);
+        PostService service = new PostService(postRepository, postCache, feedCache, likeBuffer, recentWrites);
+        when(postRepository.findById(POST_ID)).thenReturn(Optional.of(post));
+        when(postRepository.findLikesCount(POST_ID)).thenReturn(Optional.of(5));
+        when(postRepository.addLikes(Map.of(POST_ID, 2L))).thenAnswer(invocation -> {
+            post.setLikesCount(7);
+            return Map.of(POST_ID, 7);
+        });
+
+        service.getPost(POST_ID);
+        service.incrementLikes(POST_ID);
+        service.incrementLikes(POST_ID);
+
+        // Незаписанные лайки добавляются к закешированному значению: отложенный лайк кеш не сбрасывает
+        assertEquals(7, service.getPost(POST_ID).getLikesCount());
+        assertEquals(7, service.getPost(POST_ID).getLikesCount());
+        verify(postRepository, times(1)).findById(POST_ID);
+
+        likeBuffer.flush();
+
+        // После записи пост перечитывается из базы, а не отдаётся из кеша со старым значением
+        assertEquals(7, service.getPost(POST_ID).getLikesCount());
+        verify(postRepository, times(2)).findById(POST_ID);
+        likeBuffer.shutdown();
+    }
+
+    @Test
+    void updatePost_withReplicas_marksRecentWriteBeforeCacheInvalidationAfterCommit() {
+
+        RecentWrites replicaWrites = new RecentWrites("jdbc:postgresql://replica/db", Duration.ofMinutes(1), 100);
+        LikeBuffer likeBuffer = new LikeBuffer(postRepository, false, Duration.ofHours(1), 1000, 100);
+        PostService service = new PostService(postRepository, postCache, feedCache, likeBuffer, replicaWrites);
+        when(postRepository.findById(POST_ID)).thenReturn(Optional.of(post));
+        PostsPageResponse stalePage = new PostsPageResponse(List.of(), false, false, 0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.updatePost(POST_ID, postRequest);
+            // Параллельное чтение с реплики до коммита вернуло в кеш старые данные
+            postCache.put(POST_ID, new PostResponse(POST_ID, "Test Title", "Test Content", List.of(), 5, 0));
+            feedCache.put("stale", stalePage);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+                // Как только кеш сброшен, следующее чтение должно идти в основную базу
+                if (postCache.get(POST_ID) == null) {
+                    assertTrue(replicaWrites.readPosts(List.of(POST_ID), ReadRouting::isPrimaryRequired));
+                }
+                if (feedCache.get("stale") == null) {
+                    assertTrue(replicaWrites.readFeed(ReadRouting::isPrimaryRequired));
+                }
+            }
+            assertNull(postCache.get(POST_ID));
+            assertNull(feedCache.get("stale"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     void getComments_existingPost_returnsCommentsList() {
         
@@ -222,10 +409,10 @@ class PostServiceTest {
                 new Comment(101L, POST_ID, "First comment"),
                 new Comment(102L, POST_ID, "Second comment")
         );
-        when(postRepository.findCommentsByPostId(POST_ID)).thenReturn(comments);
+        when(postRepository.findCommentsByPostId(POST_ID, null, 50)).thenReturn(comments);
 
        
-        List<CommentResponse> result = postService.getComments(POST_ID);
+        List<CommentResponse> result = postService.getComments(POST_ID, null, 50);
 
        
         assertNotNull(result);
@@ -233,22 +420,22 @@ class PostServiceTest {
         assertEquals("First comment", result.getFirst().getText());
         assertEquals(POST_ID, result.getFirst().getPostId());
 
-        verify(postRepository, times(1)).findCommentsByPostId(POST_ID);
+        verify(postRepository, times(1)).findCommentsByPostId(POST_ID, null, 50);
     }
 
     @Test
     void getComments_noComments_returnsEmptyList() {
         
-        when(postRepository.findCommentsByPostId(POST_ID)).thenReturn(Collections.emptyList());
+        when(postRepository.findCommentsByPostId(POST_ID, null, 50)).thenReturn(Collections.emptyList());
 
        
-        List<CommentResponse> result = postService.getComments(POST_ID);
+        List<CommentResponse> result = postService.getComments(POST_ID, null, 50);
 
        
         assertNotNull(result);
         assertTrue(result.isEmpty());
 
-        verify(postRepository, times(1)).findCommentsByPostId(POST_ID);
+        verify(postRepository, times(1)).findCommentsByPostId(POST_ID, null, 50);
     }
 
     @Test
@@ -316,6 +503,43 @@ class PostServiceTest {
         verify(postRepository, times(1)).insertComment(any(Comment.class));
     }
 
+    @Test
+    void addComments_existingPosts_returnsResponsesInRequestOrder() {
+
+        List<CommentBatchRequest> requests = List.of(
+                new CommentBatchRequest(POST_ID, "first"),
+                new CommentBatchRequest(2L, "second"));
+        when(postRepository.findExistingIds(anyCollection())).thenReturn(Set.of(POST_ID, 2L));
+        when(postRepository.insertComments(anyList())).thenReturn(List.of(10L, 11L));
+
+
+        List<CommentResponse> result = postService.addComments(requests);
+
+
+        assertEquals(2, result.size());
+        assertEquals(10L, result.get(0).getId());
+        assertEquals("first", result.get(0).getText());
+        assertEquals(POST_ID, result.get(0).getPostId());
+        assertEquals(11L, result.get(1).getId());
+        assertEquals(2L, result.get(1).getPostId());
+        verify(postRepository, times(1)).insertComments(anyList());
+    }
+
+    @Test
+    void addComments_missingPost_returnsNullWithoutInsert() {
+
+        when(postRepository.findExistingIds(anyCollection())).thenReturn(Set.of(POST_ID));
+
+
+        List<CommentResponse> result = postService.addComments(List.of(
+                new CommentBatchRequest(POST_ID, "first"),
+                new CommentBatchRequest(2L, "second")));
+
+
+        assertNull(result);
+        verify(postRepository, never()).insertComments(anyList());
+    }
+
     @Test
     void addComment_nonExistingPost_returnsNull() {
         
@@ -506,8 +730,8 @@ class PostServiceTest {
         Post existingPost = new Post(POST_ID, "Existing", "Content", List.of("oldTag"), 5);
         PostRequest updateRequest = new PostRequest("Updated", "Updated Content", Collections.emptyList());
 
+        existingPost.setCommentsCount(3);
         when(postRepository.findById(POST_ID)).thenReturn(Optional.of(existingPost));
-        when(postRepository.getCommentsCount(POST_ID)).thenReturn(3);
 
        
         PostResponse result = postService.updatePost(POST_ID, updateRequest);
@@ -520,16 +744,33 @@ class PostServiceTest {
     }
 
     @Test
-    void incrementLikes_nonExistingPost_returnsZero() {
+    void incrementLikes_nonExistingPost_returnsNull() {
         
-        when(postRepository.incrementLikes(POST_ID)).thenReturn(0); // репозиторий возвращает 0 для несуществующего поста
+        when(postRepository.incrementLikes(POST_ID)).thenReturn(Optional.empty()); // репозиторий возвращает пусто для несуществующего поста
 
        
-        int result = postService.incrementLikes(POST_ID);
+        Integer result = postService.incrementLikes(POST_ID);
 
        
-        assertEquals(0, result);
+        assertNull(result);
 
         verify(postRepository, times(1)).incrementLikes(POST_ID);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCommentsByPostIds_groupsByPostInRequestOrder() {
+
+        when(postRepository.findCommentsByPostIds(any(), eq(5))).thenReturn(List.of(
+                new Comment(11L, 1L, "a"),
+                new Comment(10L, 1L, "b"),
+                new Comment(20L, 2L, "c")));
+
+        Map<Long, List<CommentResponse>> result = postService.getCommentsByPostIds(List.of(3L, 2L, 1L), 5);
+
+        assertEquals(List.of(3L, 2L, 1L), new ArrayList<>(result.keySet()));
+        assertTrue(result.get(3L).isEmpty());
+        assertEquals(1, result.get(2L).size());
+        assertEquals(List.of(11L, 10L), result.get(1L).stream().map(CommentResponse::getId).toList());
+        verify(postRepository, times(1)).findCommentsByPostIds(any(), eq(5));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.services;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.yandex.practicum.service.storage.S3ImageStorage;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// S3-реализация проверяется на MinIO; без Docker тест пропускается
+@Testcontainers(disabledWithoutDocker = true)
+class S3ImageStorageTest {
+
+    private static final String BUCKET = "blog-images";
+
+    @Container
+    static MinIOContainer minio = new MinIOContainer("minio/minio:RELEASE.2024-10-13T13-34-11Z");
+
+    static S3Client client;
+
+    @TempDir
+    Path staging;
+
+    @BeforeAll
+    static void createBucket() {
+        client = S3Client.builder()
+                .endpointOverride(URI.create(minio.getS3URL()))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(minio.getUserName(), minio.getPassword())))
+                .forcePathStyle(true)
+                .build();
+        client.createBucket(b -> b.bucket(BUCKET));
+    }
+
+    @Test
+    void storeLoadDelete_roundTrip() throws Exception {
+
+        S3ImageStorage storage = new S3ImageStorage(client, BUCKET);
+        Path source = Files.write(staging.resolve("upload.tmp"), new byte[]{1, 2, 3});
+
+        storage.store("1.jpg", source);
+
+        Resource resource = storage.load("1.jpg");
+        assertNotNull(resource);
+        assertEquals(3, resource.contentLength());
+        assertTrue(resource.lastModified() > 0);
+        assertArrayEquals(new byte[]{1, 2, 3}, resource.getContentAsByteArray());
+
+        storage.delete("1.jpg");
+        assertNull(storage.load("1.jpg"));
+    }
+
+    @Test
+    void load_missingKey_returnsNull() {
+
+        assertNull(new S3ImageStorage(client, BUCKET).load("404.jpg"));
+    }
+}